@@ -0,0 +1,49 @@
+package de.ait.javalessons.benchmark;
+
+import de.ait.javalessons.service.SeededOutcomeGenerator;
+import de.ait.javalessons.service.ThreadLocalOutcomeGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность генераторов исхода ставки.
+ * Math.random() — исходный вариант: один общий java.util.Random с CAS по seed, который деградирует под конкуренцией.
+ * Число потоков задаётся через jmh.args, например для сравнения на 1, 4, 16 и 64 потоках:
+ * mvn -Pjmh -DskipTests verify -Djmh.includes=BetOutcomeGenerator -Djmh.args="-t 64"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BetOutcomeGeneratorBenchmark {
+
+    private final ThreadLocalOutcomeGenerator threadLocal = new ThreadLocalOutcomeGenerator();
+
+    private final SeededOutcomeGenerator seeded = new SeededOutcomeGenerator(42);
+
+    @Benchmark
+    public boolean mathRandom() {
+        return Math.random() > 0.5;
+    }
+
+    @Benchmark
+    public boolean threadLocal() {
+        return threadLocal.nextWin();
+    }
+
+    @Benchmark
+    public boolean seeded() {
+        return seeded.nextWin();
+    }
+}
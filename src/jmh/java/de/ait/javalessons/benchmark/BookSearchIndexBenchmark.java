@@ -0,0 +1,144 @@
+package de.ait.javalessons.benchmark;
+
+import de.ait.javalessons.model.Book;
+import de.ait.javalessons.service.BookSearchIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Поиск по индексу книг (BookSearchIndex) на синтетическом каталоге.
+ * Слова названий берутся из словаря с неравномерной частотой: первые слова словаря встречаются
+ * в десятках тысяч книг, последние — в единицах, как в настоящем каталоге.
+ * Запросы: редкое слово, частое слово, два частых слова, префикс при наборе и слово автора с префиксом.
+ * Занимаемая индексом память (heap после сборки мусора) печатается при подготовке, например:
+ * mvn -Pjmh -DskipTests verify -Djmh.includes=BookSearchIndex
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class BookSearchIndexBenchmark {
+
+    private static final int VOCABULARY_SIZE = 50_000;
+
+    private static final String[] SYLLABLES = {"ka", "lo", "mi", "ra", "te", "son", "ber", "dri", "an", "el",
+            "or", "vik", "tu", "sha", "gen", "ol", "mar", "in", "cha", "pel", "us", "ni", "bra", "do"};
+
+    @Param({"1000000"})
+    public int books;
+
+    private BookSearchIndex index;
+
+    private String rareWord;
+
+    private String commonWord;
+
+    private String twoCommonWords;
+
+    private String typedPrefix;
+
+    private String authorAndPrefix;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        List<String> vocabulary = words(random, VOCABULARY_SIZE);
+        List<String> firstNames = words(random, 500);
+        List<String> lastNames = words(random, 20_000);
+
+        long heapBefore = usedHeap();
+        // Без базы: индекс заполняется напрямую, как при пакетной загрузке
+        index = new BookSearchIndex(null, null, null, new SimpleMeterRegistry());
+        StringBuilder title = new StringBuilder();
+        for (int i = 0; i < books; i++) {
+            title.setLength(0);
+            int length = 2 + random.nextInt(5);
+            for (int word = 0; word < length; word++) {
+                // Куб равномерной величины смещает выбор к началу словаря — частые слова
+                int rank = (int) (VOCABULARY_SIZE * Math.pow(random.nextDouble(), 3));
+                title.append(word == 0 ? "" : " ").append(vocabulary.get(rank));
+            }
+            String author = firstNames.get(random.nextInt(firstNames.size())) + " "
+                    + lastNames.get(random.nextInt(lastNames.size()));
+            index.put(new Book("book-" + i, title.toString(), author, 1900 + random.nextInt(125)));
+        }
+        long heapAfter = usedHeap();
+        System.out.printf("%nBookSearchIndex: %,d books, %,d MB heap, %,d bytes per book%n",
+                index.size(), (heapAfter - heapBefore) >> 20, (heapAfter - heapBefore) / books);
+
+        rareWord = vocabulary.get(VOCABULARY_SIZE - 1);
+        commonWord = vocabulary.get(0);
+        twoCommonWords = vocabulary.get(1) + " " + vocabulary.get(2);
+        typedPrefix = vocabulary.get(3) + " " + vocabulary.get(10).substring(0, 3);
+        authorAndPrefix = lastNames.get(7) + " " + vocabulary.get(100).substring(0, 2);
+        System.out.printf("Matches: rare=%d, common=%d (limit 100)%n",
+                index.search(rareWord, BookSearchIndex.MAX_LIMIT).size(),
+                index.search(commonWord, BookSearchIndex.MAX_LIMIT).size());
+    }
+
+    @Benchmark
+    public List<Book> rareWord() {
+        return index.search(rareWord, 20);
+    }
+
+    @Benchmark
+    public List<Book> commonWord() {
+        return index.search(commonWord, 20);
+    }
+
+    @Benchmark
+    public List<Book> twoCommonWords() {
+        return index.search(twoCommonWords, 20);
+    }
+
+    @Benchmark
+    public List<Book> typedPrefix() {
+        return index.search(typedPrefix, 20);
+    }
+
+    @Benchmark
+    public List<Book> authorAndPrefix() {
+        return index.search(authorAndPrefix, 20);
+    }
+
+    // Слова из слогов, без повторов
+    private static List<String> words(Random random, int count) {
+        Set<String> words = new LinkedHashSet<>();
+        StringBuilder word = new StringBuilder();
+        while (words.size() < count) {
+            word.setLength(0);
+            int syllables = 2 + random.nextInt(3);
+            for (int i = 0; i < syllables; i++) {
+                word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            words.add(word.toString());
+        }
+        return List.copyOf(words);
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
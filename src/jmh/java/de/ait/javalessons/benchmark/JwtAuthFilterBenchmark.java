@@ -0,0 +1,89 @@
+package de.ait.javalessons.benchmark;
+
+import de.ait.javalessons.filter.JwtAuthFilter;
+import de.ait.javalessons.serice.CachingUserDetailService;
+import de.ait.javalessons.serice.CustomUserDetailService;
+import de.ait.javalessons.utils.JwtTokenCache;
+import de.ait.javalessons.utils.JwtUtils;
+import de.ait.javalessons.utils.SecurityEventRecorder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Один проход JwtAuthFilter с уже прогретыми кэшами токенов и пользователей и пустой цепочкой фильтров.
+ * principalFromClaims=true — principal собирается из claim "roles", без кэша пользователей.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtAuthFilterBenchmark {
+
+    @Param({"false", "true"})
+    public boolean principalFromClaims;
+
+    private final FilterChain filterChain = (request, response) -> {
+    };
+
+    private JwtAuthFilter jwtAuthFilter;
+
+    private String authHeader;
+
+    @Setup
+    public void setUp() {
+        UserDetails user = new User("user", "", List.of(new SimpleGrantedAuthority("ROLE_USER")));
+        CustomUserDetailService customUserDetailService = mock(CustomUserDetailService.class);
+        when(customUserDetailService.loadUserByUsername("user")).thenReturn(user);
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        JwtUtils jwtUtils = new JwtUtils(meterRegistry,
+                new SecurityEventRecorder(meterRegistry, 10, Duration.ofMinutes(1)));
+        jwtAuthFilter = new JwtAuthFilter();
+        ReflectionTestUtils.setField(jwtAuthFilter, "jwtUtils", jwtUtils);
+        ReflectionTestUtils.setField(jwtAuthFilter, "jwtTokenCache",
+                new JwtTokenCache(jwtUtils, meterRegistry, 10_000));
+        ReflectionTestUtils.setField(jwtAuthFilter, "userDetailsService",
+                new CachingUserDetailService(customUserDetailService, meterRegistry, 1000, Duration.ofMinutes(5)));
+        ReflectionTestUtils.setField(jwtAuthFilter, "principalFromClaims", principalFromClaims);
+
+        authHeader = "Bearer " + jwtUtils.generateToken(user);
+    }
+
+    @Benchmark
+    public Object doFilter() throws Exception {
+        // Новый запрос на каждый вызов: OncePerRequestFilter пропускает уже обработанные запросы
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/books");
+        request.addHeader("Authorization", authHeader);
+        jwtAuthFilter.doFilter(request, new MockHttpServletResponse(), filterChain);
+        Object principal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        SecurityContextHolder.clearContext();
+        return principal;
+    }
+}
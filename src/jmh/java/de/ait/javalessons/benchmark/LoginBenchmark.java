@@ -0,0 +1,72 @@
+package de.ait.javalessons.benchmark;
+
+import de.ait.javalessons.model.AuthRequest;
+import de.ait.javalessons.service.LoginService;
+import de.ait.javalessons.utils.JwtUtils;
+import de.ait.javalessons.utils.SecurityEventRecorder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Полный логин через LoginService: очередь пула, проверка BCrypt (strength 10, как в SecurityConfig) и генерация токена.
+ * Пользователь хранится в памяти, чтобы замер не включал запрос к базе.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoginBenchmark {
+
+    private LoginService loginService;
+
+    private AuthRequest authRequest;
+
+    @Setup
+    public void setUp() {
+        BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
+        InMemoryUserDetailsManager userDetailsService = new InMemoryUserDetailsManager(User.withUsername("user")
+                .password(passwordEncoder.encode("password"))
+                .roles("USER")
+                .build());
+        DaoAuthenticationProvider authenticationProvider = new DaoAuthenticationProvider(userDetailsService);
+        authenticationProvider.setPasswordEncoder(passwordEncoder);
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        JwtUtils jwtUtils = new JwtUtils(meterRegistry,
+                new SecurityEventRecorder(meterRegistry, 10, Duration.ofMinutes(1)));
+        loginService = new LoginService(new ProviderManager(authenticationProvider), jwtUtils, meterRegistry, 0, 1000);
+        authRequest = new AuthRequest();
+        authRequest.setUsername("user");
+        authRequest.setPassword("password");
+    }
+
+    @TearDown
+    public void tearDown() {
+        loginService.shutdown();
+    }
+
+    @Benchmark
+    public String login() {
+        return loginService.login(authRequest).join();
+    }
+}
@@ -0,0 +1,96 @@
+package de.ait.javalessons.benchmark;
+
+import de.ait.javalessons.model.BankAccount;
+import de.ait.javalessons.model.Player;
+import de.ait.javalessons.repository.BankAccountRepository;
+import de.ait.javalessons.repository.PlayerRepository;
+import de.ait.javalessons.service.BankAccountService;
+import de.ait.javalessons.service.BetEngine;
+import de.ait.javalessons.service.BetPlacementService;
+import de.ait.javalessons.service.ThreadLocalOutcomeGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ставка в казино (BetPlacementService) и пополнение счёта (BankAccountService) на H2 в памяти.
+ * Поднимается только слой JPA с этими сервисами, без веб-слоя и конфигураций безопасности.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersistenceBenchmark {
+
+    @SpringBootConfiguration
+    @EnableAutoConfiguration
+    @EntityScan("de.ait.javalessons.model")
+    @EnableJpaRepositories("de.ait.javalessons.repository")
+    @Import({BetPlacementService.class, ThreadLocalOutcomeGenerator.class, BankAccountService.class})
+    static class PersistenceConfig {
+    }
+
+    private static final BigDecimal AMOUNT = new BigDecimal("0.10");
+
+    private ConfigurableApplicationContext context;
+
+    private BetEngine betEngine;
+
+    private BankAccountService bankAccountService;
+
+    private Long playerId;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(PersistenceConfig.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:benchmark", // Аргументы важнее application.properties
+                        "--spring.jpa.show-sql=false",
+                        "--spring.sql.init.mode=never");
+        betEngine = context.getBean(BetEngine.class);
+        bankAccountService = context.getBean(BankAccountService.class);
+
+        Player player = new Player();
+        player.setName("Benchmark");
+        player.setBalance(Integer.MAX_VALUE / 2);
+        playerId = context.getBean(PlayerRepository.class).save(player).getId();
+        context.getBean(BankAccountRepository.class)
+                .save(new BankAccount("benchmark", "Benchmark", new BigDecimal("0.00"), null));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public BetEngine.BetOutcome placeBet() {
+        return betEngine.placeBet(playerId, 1);
+    }
+
+    @Benchmark
+    public BankAccount deposit() {
+        return bankAccountService.deposit("benchmark", AMOUNT);
+    }
+}
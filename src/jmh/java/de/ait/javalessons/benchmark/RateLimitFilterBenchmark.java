@@ -0,0 +1,96 @@
+package de.ait.javalessons.benchmark;
+
+import de.ait.javalessons.filter.RateLimitFilter;
+import de.ait.javalessons.properties.RateLimitProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Стоимость RateLimitFilter на один запрос при 16 параллельных потоках, с пустой цепочкой фильтров.
+ * - clients=shared — все потоки работают от имени одного пользователя и конкурируют за CAS одной корзины;
+ * - clients=distinct — у каждого потока свой пользователь и своя корзина.
+ * enabled=false — базовая линия: фильтр только передаёт запрос дальше.
+ * Лимит заведомо не достигается, измеряется путь успешного запроса.
+ * Запуск: mvn -Pjmh -DskipTests verify -Djmh.includes=RateLimitFilterBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(16)
+@Fork(1)
+public class RateLimitFilterBenchmark {
+
+    @Param({"true", "false"})
+    public boolean enabled;
+
+    @Param({"shared", "distinct"})
+    public String clients;
+
+    private final FilterChain filterChain = (request, response) -> {
+    };
+
+    private final AtomicInteger threadNumber = new AtomicInteger();
+
+    private RateLimitFilter rateLimitFilter;
+
+    @Setup
+    public void setUp() {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setEnabled(enabled);
+        properties.setDefaultLimit(new RateLimitProperties.Limit(1_000_000_000, 1_000_000_000));
+        properties.getRoutes().put("/auth/login", new RateLimitProperties.Limit(1, 10));
+        properties.getRoutes().put("/casino/bet", new RateLimitProperties.Limit(1_000_000_000, 1_000_000_000));
+        rateLimitFilter = new RateLimitFilter(properties, new SimpleMeterRegistry());
+    }
+
+    /**
+     * Запрос и аутентификация одного потока.
+     */
+    @State(Scope.Thread)
+    public static class Client {
+
+        private MockHttpServletRequest request;
+
+        private MockHttpServletResponse response;
+
+        @Setup
+        public void setUp(RateLimitFilterBenchmark benchmark) {
+            String username = benchmark.clients.equals("shared")
+                    ? "user"
+                    : "user-" + benchmark.threadNumber.incrementAndGet();
+            SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                    username, null, List.of(new SimpleGrantedAuthority("ROLE_USER"))));
+            request = new MockHttpServletRequest("POST", "/casino/bet");
+            response = new MockHttpServletResponse();
+        }
+    }
+
+    @Benchmark
+    public int doFilter(Client client) throws Exception {
+        rateLimitFilter.doFilter(client.request, client.response, filterChain);
+        return client.response.getStatus();
+    }
+}
@@ -1,19 +1,69 @@
 package de.ait.javalessons.config;
 
 import de.ait.javalessons.properties.ExternalApiProperties;
+import de.ait.javalessons.properties.RateLimitProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
 @Configuration
-@EnableConfigurationProperties(ExternalApiProperties.class)
+@EnableConfigurationProperties({ExternalApiProperties.class, RateLimitProperties.class})
 public class AppConfig {
 
+    /**
+     * HTTP-клиент для внешнего API (Apache HttpClient 5) с пулом соединений.
+     * Соединения переиспользуются (keep-alive), число соединений на хост ограничено, и все ожидания
+     * ограничены по времени: установка соединения, ответ и получение соединения из пула.
+     * Поэтому медленный внешний сервис занимает не больше max-connections-per-host потоков,
+     * а остальные запросы к нему быстро получают отказ, а не ждут в очереди.
+     * Метрики пула: httpcomponents.httpclient.pool.* с тегом httpclient=external.api.
+     */
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
-    }
+    public CloseableHttpClient externalApiHttpClient(ExternalApiProperties properties, MeterRegistry meterRegistry) {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnPerRoute(properties.getMaxConnectionsPerHost())
+                .setMaxConnTotal(properties.getMaxConnectionsTotal())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(properties.getConnectTimeout()))
+                        .setSocketTimeout(Timeout.of(properties.getTimeout()))
+                        .build())
+                .build();
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "external.api").bindTo(meterRegistry);
 
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.of(properties.getPoolTimeout()))
+                        .setResponseTimeout(Timeout.of(properties.getTimeout()))
+                        .build())
+                // Соединение живёт не дольше keep-alive, даже если сервер разрешает больше
+                .setKeepAliveStrategy((response, context) -> TimeValue.of(properties.getKeepAlive()))
+                .evictIdleConnections(TimeValue.of(properties.getKeepAlive()))
+                .evictExpiredConnections()
+                .build();
+    }
 
+    /**
+     * RestTemplate поверх пула соединений. Собирается через RestTemplateBuilder, чтобы Spring Boot
+     * добавил метрики http.client.requests.
+     */
+    @Bean
+    public RestTemplate restTemplate(RestTemplateBuilder restTemplateBuilder, CloseableHttpClient externalApiHttpClient) {
+        return restTemplateBuilder
+                .requestFactory(() -> new HttpComponentsClientHttpRequestFactory(externalApiHttpClient))
+                .build();
+    }
 }
@@ -1,6 +1,8 @@
 package de.ait.javalessons.config;
 
 import de.ait.javalessons.filter.JwtAuthFilter; // Фильтр, который будет проверять JWT токены
+import de.ait.javalessons.filter.RateLimitFilter;
+import jakarta.servlet.DispatcherType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -22,9 +24,13 @@ public class SecurityConfig {
 
     private final JwtAuthFilter jwtAuthFilter;
 
-    // Через конструктор внедряется фильтр, который будет перехватывать запросы и проверять JWT
-    public SecurityConfig(JwtAuthFilter jwtAuthFilter) {
+    private final RateLimitFilter rateLimitFilter;
+
+    // Через конструктор внедряются фильтр, который будет перехватывать запросы и проверять JWT,
+    // и фильтр ограничения частоты запросов
+    public SecurityConfig(JwtAuthFilter jwtAuthFilter, RateLimitFilter rateLimitFilter) {
         this.jwtAuthFilter = jwtAuthFilter;
+        this.rateLimitFilter = rateLimitFilter;
     }
 
     /**
@@ -40,6 +46,11 @@ public class SecurityConfig {
                         auth
                                 // Разрешаем доступ без аутентификации к login и public-эндпоинтам
                                 .requestMatchers("/auth/login", "/api/public", "/h2-console/**").permitAll()
+                                // Health и метрики Prometheus (отдаются только на локальном порту управления)
+                                .requestMatchers("/actuator/health", "/actuator/prometheus").permitAll()
+                                // Асинхронная досылка ответа (потоковые ответы, CompletableFuture) уже прошла проверку
+                                // на исходном запросе
+                                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                                 // Все остальные эндпоинты требуют аутентификации
                                 .anyRequest().authenticated()
                 )
@@ -54,6 +65,8 @@ public class SecurityConfig {
 
         // Добавляем фильтр, который будет обрабатывать JWT до стандартного UsernamePasswordAuthenticationFilter
         http.addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class);
+        // Ограничение частоты — сразу после JWT-фильтра, когда клиент уже известен по токену
+        http.addFilterAfter(rateLimitFilter, JwtAuthFilter.class);
 
         return http.build();
     }
@@ -4,10 +4,10 @@ import de.ait.javalessons.service.ExternalApiService;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-//@RestController
+@RestController
 public class ApiController {
 
-   /** private final ExternalApiService externalApiService;
+    private final ExternalApiService externalApiService;
 
     public ApiController(ExternalApiService externalApiService){
         this.externalApiService = externalApiService;
@@ -23,7 +23,4 @@ public class ApiController {
         return "Response: " + externalApiService.getTimeout();
     }
 
-
-    */
-
 }
@@ -1,35 +1,41 @@
 package de.ait.javalessons.controller;
 
 import de.ait.javalessons.model.AuthRequest;
-import de.ait.javalessons.utils.JwtUtils;
-import org.springframework.security.core.Authentication;
+import de.ait.javalessons.service.LoginService;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+@Slf4j
 @RestController
 @RequestMapping("/auth")
 public class AuthController {
 
     @Autowired
-    private AuthenticationManager authenticationManager;
-
-    @Autowired
-    private JwtUtils jwtUtils;
+    private LoginService loginService;
 
+    // Поток запроса освобождается сразу, проверка пароля идёт в пуле LoginService
     @PostMapping("/login")
-    public String login(@RequestBody AuthRequest authRequest) {
-        Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(authRequest.getUsername(), authRequest.getPassword())
-        );
+    public CompletableFuture<String> login(@RequestBody AuthRequest authRequest) {
+        return loginService.login(authRequest);
+    }
 
-        UserDetails userDetails = (UserDetails) authentication.getPrincipal();
-        return jwtUtils.generateToken(userDetails.getUsername());
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<String> loginQueueFull() {
+        log.warn("Login queue is full, request rejected");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body("Слишком много попыток входа, повторите позже");
     }
 
 }
@@ -0,0 +1,31 @@
+package de.ait.javalessons.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * Ответ 503 на исчерпание пула соединений.
+ * С виртуальными потоками число одновременных запросов не ограничено пулом Tomcat, поэтому
+ * пределом служит пул соединений Hikari: запрос ждёт соединение не дольше
+ * spring.datasource.hikari.connection-timeout, а затем получает быстрый отказ вместо бесконечной очереди.
+ */
+@Slf4j
+@RestControllerAdvice
+public class DatabaseBusyExceptionHandler {
+
+    // CannotCreateTransactionException — нет соединения на старте транзакции,
+    // DataAccessResourceFailureException — на запросе вне транзакции
+    @ExceptionHandler({CannotCreateTransactionException.class, DataAccessResourceFailureException.class})
+    public ResponseEntity<String> connectionPoolExhausted(RuntimeException exception) {
+        log.warn("No database connection available: {}", exception.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body("Сервис перегружен, повторите позже");
+    }
+}
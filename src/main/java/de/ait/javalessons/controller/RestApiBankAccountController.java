@@ -2,20 +2,31 @@ package de.ait.javalessons.controller;
 
 
 import de.ait.javalessons.model.BankAccount;
+import de.ait.javalessons.model.Posting;
+import de.ait.javalessons.model.PostingResult;
 import de.ait.javalessons.repository.BankAccountRepository;
+import de.ait.javalessons.service.BankAccountService;
+import de.ait.javalessons.utils.StreamingJsonWriter;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.math.BigDecimal;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Optional;
 
 @Slf4j
@@ -25,14 +36,31 @@ public class RestApiBankAccountController {
 
     private BankAccountRepository bankAccountRepository;
 
-    public RestApiBankAccountController(BankAccountRepository bankAccountRepository) {
+    private BankAccountService bankAccountService;
+
+    private StreamingJsonWriter streamingJsonWriter;
+
+    public RestApiBankAccountController(BankAccountRepository bankAccountRepository,
+                                        BankAccountService bankAccountService,
+                                        StreamingJsonWriter streamingJsonWriter) {
         this.bankAccountRepository = bankAccountRepository;
+        this.bankAccountService = bankAccountService;
+        this.streamingJsonWriter = streamingJsonWriter;
     }
 
     @GetMapping
-    public List<BankAccount> getAllBankAccounts() {
-        log.info("Getting all bank accounts");
-        return bankAccountRepository.findAll();
+    public ResponseEntity<StreamingResponseBody> getAllBankAccounts(
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        log.debug("Streaming all bank accounts");
+        return streamingJsonWriter.stream(accept, bankAccountRepository::streamAll);
+    }
+
+    // Keyset-пагинация: /api/accounts?size=100&after=<id последнего счёта предыдущей страницы>
+    @GetMapping(params = "size")
+    public List<BankAccount> getBankAccountsPage(@RequestParam(defaultValue = "") String after,
+                                                 @RequestParam int size) {
+        log.debug("Getting {} bank accounts after id '{}'", size, after);
+        return bankAccountRepository.findByIdGreaterThanOrderByIdAsc(after, StreamingJsonWriter.pageLimit(size));
     }
 
     @PostMapping
@@ -46,10 +74,10 @@ public class RestApiBankAccountController {
     ResponseEntity<BankAccount> getBankAccountById(@PathVariable String id) {
         Optional<BankAccount> bankAccount = bankAccountRepository.findById(id);
         if (bankAccount.isPresent()) {
-            log.info("Bank account with id: {} found", id);
+            log.debug("Bank account with id: {} found", id);
             return ResponseEntity.status(HttpStatus.OK).body(bankAccount.get());
         }
-        log.info("Bank account with id: {} not found", id);
+        log.debug("Bank account with id: {} not found", id);
         return ResponseEntity.notFound().build();
     }
 
@@ -62,29 +90,47 @@ public class RestApiBankAccountController {
 
     //api/accounts/{id}/deposit?amount=500
     @PutMapping("/{id}/deposit")
-    public ResponseEntity<BankAccount> deposit(@PathVariable String id, @RequestParam double amount) {
+    public ResponseEntity<BankAccount> deposit(@PathVariable String id, @RequestParam BigDecimal amount) {
+        if (amount.signum() <= 0) {
+            log.warn("Deposit of {} is not possible. Amount must be positive", amount);
+            return ResponseEntity.badRequest().build();
+        }
         log.info("Depositing {} to bank account with id {}", amount, id);
-        BankAccount bankAccount = bankAccountRepository.findById(id).orElseThrow();
-        bankAccount.setBalance(bankAccount.getBalance() + amount);
-        bankAccountRepository.save(bankAccount);
+        BankAccount bankAccount = bankAccountService.deposit(id, amount);
         return ResponseEntity.status(HttpStatus.OK).body(bankAccount);
     }
 
     @PutMapping("/{id}/withdraw")
-    public ResponseEntity<BankAccount> withdraw(@PathVariable String id, @RequestParam double amount) {
-        BankAccount bankAccount = bankAccountRepository.findById(id).orElseThrow();
-        if (bankAccount.getBalance() < amount) {
-            log.warn("Withdrawal of {} is not possible. Balance is {}", amount, bankAccount.getBalance());
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(bankAccount);
+    public ResponseEntity<BankAccount> withdraw(@PathVariable String id, @RequestParam BigDecimal amount) {
+        if (amount.signum() <= 0) {
+            log.warn("Withdrawal of {} is not possible. Amount must be positive", amount);
+            return ResponseEntity.badRequest().build();
         }
-        bankAccount.setBalance(bankAccount.getBalance() - amount);
-        bankAccountRepository.save(bankAccount);
-        return ResponseEntity.status(HttpStatus.OK).body(bankAccount);
+        BankAccountService.BalanceChange change = bankAccountService.withdraw(id, amount);
+        if (!change.applied()) {
+            log.warn("Withdrawal of {} is not possible. Balance is {}", amount, change.account().getBalance());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(change.account());
+        }
+        return ResponseEntity.status(HttpStatus.OK).body(change.account());
+    }
+
+    // Пакетные проводки: все записи применяются в одной транзакции, результат по каждой записи
+    @PostMapping("/postings")
+    public List<PostingResult> postPostings(@RequestBody List<Posting> postings) {
+        log.info("Applying {} postings", postings.size());
+        return bankAccountService.applyPostings(postings);
     }
 
     @GetMapping("/search")
     public List<BankAccount> findByOwner(@RequestParam String name) {
-        log.info("Searching for bank accounts with owner {}", name);
+        log.debug("Searching for bank accounts with owner {}", name);
         return bankAccountRepository.findByOwnerName(name);
     }
+
+    // Пополнение и снятие несуществующего счёта — 404, как у GET /{id}
+    @ExceptionHandler(NoSuchElementException.class)
+    public ResponseEntity<Void> accountNotFound(NoSuchElementException exception) {
+        log.debug(exception.getMessage());
+        return ResponseEntity.notFound().build();
+    }
 }
@@ -1,10 +1,22 @@
 package de.ait.javalessons.controller;
 
 import de.ait.javalessons.model.Book;
+import de.ait.javalessons.model.BulkImportResult;
+import de.ait.javalessons.model.EntityVersion;
 import de.ait.javalessons.repository.BookRepository;
+import de.ait.javalessons.service.BookSearchIndex;
+import de.ait.javalessons.service.CatalogBulkImporter;
+import de.ait.javalessons.service.CatalogCache;
+import de.ait.javalessons.utils.ConditionalRequests;
+import de.ait.javalessons.utils.StreamingJsonWriter;
+import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -12,11 +24,19 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Slf4j
 @RestController
@@ -26,8 +46,25 @@ public class RestApiBookController {
 
     private final BookRepository bookRepository;
 
-    public RestApiBookController(BookRepository bookRepository) {
+    private final StreamingJsonWriter streamingJsonWriter;
+
+    private final CatalogCache catalogCache;
+
+    private final Validator validator;
+
+    private final CatalogBulkImporter catalogBulkImporter;
+
+    private final BookSearchIndex bookSearchIndex;
+
+    public RestApiBookController(BookRepository bookRepository, StreamingJsonWriter streamingJsonWriter,
+                                 CatalogCache catalogCache, Validator validator, CatalogBulkImporter catalogBulkImporter,
+                                 BookSearchIndex bookSearchIndex) {
         this.bookRepository = bookRepository;
+        this.streamingJsonWriter = streamingJsonWriter;
+        this.catalogCache = catalogCache;
+        this.validator = validator;
+        this.catalogBulkImporter = catalogBulkImporter;
+        this.bookSearchIndex = bookSearchIndex;
         /**this.bookRepository.saveAll(List.of(
                 new Book("1", "Clean Code", "Robert C. Martin", 2008),
                 new Book("2", "1984", "George Orwell", 1949),
@@ -39,17 +76,48 @@ public class RestApiBookController {
     }
 
 
+    // Все книги потоком: JSON-массив или NDJSON (Accept: application/x-ndjson)
+    // If-None-Match с ETag списка — 304 без чтения и сериализации строк
     @GetMapping
-    Iterable<Book> getBooks() {
-        log.info("Getting all books");
-        return bookRepository.findAll();
+    ResponseEntity<StreamingResponseBody> getBooks(@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                                   WebRequest request) {
+        String eTag = bookRepository.findTableVersion().eTag(StreamingJsonWriter.isNdjson(accept) ? "ndjson" : "json");
+        if (request.checkNotModified(eTag)) {
+            log.debug("Books not modified");
+            return null; // 304, ETag уже выставлен
+        }
+        log.debug("Streaming all books");
+        return streamingJsonWriter.stream(accept, bookRepository::streamAll);
+    }
+
+    // Keyset-пагинация: /books?size=100&after=<id последней книги предыдущей страницы>
+    @GetMapping(params = "size")
+    List<Book> getBooksPage(@RequestParam(defaultValue = "") String after, @RequestParam int size) {
+        log.debug("Getting {} books after id '{}'", size, after);
+        return bookRepository.findByIdGreaterThanOrderByIdAsc(after, StreamingJsonWriter.pageLimit(size));
     }
 
+    // Поиск по словам названия и автора: /books/search?q=clean cod&limit=20 (последнее слово — и как начало слова)
+    @GetMapping("/search")
+    List<Book> searchBooks(@RequestParam String q, @RequestParam(defaultValue = "20") int limit) {
+        log.debug("Searching books for '{}'", q);
+        return bookSearchIndex.search(q, limit);
+    }
+
+    // Условный GET сначала сверяет только версию (из кэша или запросом версии, без загрузки строки):
+    // совпала — 304 без тела
     @GetMapping("/{id}")
-    ResponseEntity<Book> getBookById(@PathVariable String id) {
-        Optional <Book> book = bookRepository.findById(id);
+    ResponseEntity<Book> getBookById(@PathVariable String id, WebRequest request) {
+        Optional<EntityVersion> version = ConditionalRequests.isConditional(request)
+                ? catalogCache.findBookVersion(id)
+                : catalogCache.findBook(id).map(book -> new EntityVersion(book.getVersion(), book.getLastModified()));
+        if (version.isPresent() && ConditionalRequests.checkNotModified(request, version.get())) {
+            log.debug("Book with id {} not modified", id);
+            return null; // 304, ETag и Last-Modified уже выставлены
+        }
+        Optional <Book> book = catalogCache.findBook(id);
         if (book.isPresent()) {
-            log.info("Book with id {} found", id);
+            log.debug("Book with id {} found", id);
             return ResponseEntity.status(HttpStatus.OK).body(book.get());
         }
         log.warn("Book with id {} not found", id);
@@ -58,24 +126,55 @@ public class RestApiBookController {
 
     @PostMapping
     ResponseEntity<Book> postBook(@Valid @RequestBody Book book) {
+        // С @Version новая сущность (version == null) сохраняется через persist, и повторный id дал бы
+        // ошибку первичного ключа; существующую запись заменяет PUT
+        if (bookRepository.existsById(book.getId())) {
+            log.warn("Book with id {} already exists", book.getId());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
         Book savedBook = bookRepository.save(book);
         log.info("Book with id {} added", book.getId());
         return ResponseEntity.status(HttpStatus.CREATED).body(savedBook);
     }
 
+    // PUT заменяет книгу целиком (все поля обязательны): один UPDATE по id, без SELECT;
+    // если книги нет — создаёт её одним INSERT (new сущность сохраняется через persist, без merge)
     @PutMapping("/{id}")
     ResponseEntity<Book> putBook(@PathVariable String id, @RequestBody Book book) {
-        if(bookRepository.existsById(id)){
-            Book bookInDatabase = bookRepository.findById(id).get();
-            book.setId(bookInDatabase.getId());
-            book.setAuthor(bookInDatabase.getAuthor());
-            book.setPublishYear(bookInDatabase.getPublishYear());
-            book.setTitle(bookInDatabase.getTitle());
-            bookRepository.save(book);
+        book.setId(id);
+        Set<ConstraintViolation<Book>> violations = validator.validate(book);
+        if (!violations.isEmpty()) {
+            log.warn("Invalid book with id {}: {}", id, violations);
+            return ResponseEntity.badRequest().build();
+        }
+        Instant lastModified = EntityVersion.now();
+        Optional<Long> version = bookRepository.updateReturningVersion(id, book.getTitle(), book.getAuthor(),
+                book.getPublishYear(), lastModified);
+        if (version.isPresent()) {
+            // UPDATE-запрос обходит слушатели сущности; версия и время — чтобы индекс не принял опоздавшее изменение
+            book.setVersion(version.get());
+            book.setLastModified(lastModified);
+            catalogCache.evictBook(id);
+            bookSearchIndex.put(book);
             log.info("Book with id {} updated", id);
-            return new ResponseEntity<>(book, HttpStatus.OK);
+            return ResponseEntity.ok(book);
+        }
+        try {
+            Book savedBook = bookRepository.save(book);
+            log.info("Book with id {} added", id);
+            return ResponseEntity.status(HttpStatus.CREATED).body(savedBook);
+        } catch (DataIntegrityViolationException exception) {
+            // Параллельный запрос успел создать книгу с тем же id
+            log.warn("Book with id {} was created concurrently", id);
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
         }
-            return postBook(book);
+    }
+
+    // Массовая загрузка: JSON-массив или NDJSON, тело читается потоково и добавляется пакетами;
+    // в ответе — сколько строк добавлено и какие отклонены
+    @PostMapping(path = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, StreamingJsonWriter.APPLICATION_NDJSON_VALUE})
+    BulkImportResult postBooksBulk(InputStream body) throws IOException {
+        return catalogBulkImporter.importBooks(body);
     }
 
     @DeleteMapping("/{id}")
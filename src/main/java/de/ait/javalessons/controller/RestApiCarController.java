@@ -1,10 +1,21 @@
 package de.ait.javalessons.controller;
 
+import de.ait.javalessons.model.BulkImportResult;
 import de.ait.javalessons.model.Car;
+import de.ait.javalessons.model.EntityVersion;
 import de.ait.javalessons.repository.CarRepository;
+import de.ait.javalessons.service.CatalogBulkImporter;
+import de.ait.javalessons.service.CatalogCache;
+import de.ait.javalessons.utils.ConditionalRequests;
+import de.ait.javalessons.utils.StreamingJsonWriter;
+import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -12,12 +23,19 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Slf4j
 @RestController
@@ -26,8 +44,21 @@ public class RestApiCarController {
 
     private final CarRepository carRepository;
 
-    public RestApiCarController(CarRepository carRepository) {
+    private final StreamingJsonWriter streamingJsonWriter;
+
+    private final CatalogCache catalogCache;
+
+    private final Validator validator;
+
+    private final CatalogBulkImporter catalogBulkImporter;
+
+    public RestApiCarController(CarRepository carRepository, StreamingJsonWriter streamingJsonWriter,
+                                CatalogCache catalogCache, Validator validator, CatalogBulkImporter catalogBulkImporter) {
         this.carRepository = carRepository;
+        this.streamingJsonWriter = streamingJsonWriter;
+        this.catalogCache = catalogCache;
+        this.validator = validator;
+        this.catalogBulkImporter = catalogBulkImporter;
         /**this.carRepository.saveAll(List.of(
                 new Car("1", "Audi A4"),
                 new Car("2", "BMW M5"),
@@ -39,17 +70,40 @@ public class RestApiCarController {
     }
 
     //@RequestMapping(value = "/cars", method = RequestMethod.GET)
+    // If-None-Match с ETag списка — 304 без чтения и сериализации строк
     @GetMapping
-    Iterable<Car> getCars() {
-        log.info("Getting all cars");
-        return carRepository.findAll();
+    ResponseEntity<StreamingResponseBody> getCars(@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                                  WebRequest request) {
+        String eTag = carRepository.findTableVersion().eTag(StreamingJsonWriter.isNdjson(accept) ? "ndjson" : "json");
+        if (request.checkNotModified(eTag)) {
+            log.debug("Cars not modified");
+            return null; // 304, ETag уже выставлен
+        }
+        log.debug("Streaming all cars");
+        return streamingJsonWriter.stream(accept, carRepository::streamAll);
+    }
+
+    // Keyset-пагинация: /cars?size=100&after=<id последней машины предыдущей страницы>
+    @GetMapping(params = "size")
+    List<Car> getCarsPage(@RequestParam(defaultValue = "") String after, @RequestParam int size) {
+        log.debug("Getting {} cars after id '{}'", size, after);
+        return carRepository.findByIdGreaterThanOrderByIdAsc(after, StreamingJsonWriter.pageLimit(size));
     }
 
+    // Условный GET сначала сверяет только версию (из кэша или запросом версии, без загрузки строки):
+    // совпала — 304 без тела
     @GetMapping("/{id}")
-    ResponseEntity<Car> getCarById(@PathVariable String id) {
-        Optional<Car> car = carRepository.findById(id);
+    ResponseEntity<Car> getCarById(@PathVariable String id, WebRequest request) {
+        Optional<EntityVersion> version = ConditionalRequests.isConditional(request)
+                ? catalogCache.findCarVersion(id)
+                : catalogCache.findCar(id).map(car -> new EntityVersion(car.getVersion(), car.getLastModified()));
+        if (version.isPresent() && ConditionalRequests.checkNotModified(request, version.get())) {
+            log.debug("Car with id {} not modified", id);
+            return null; // 304, ETag и Last-Modified уже выставлены
+        }
+        Optional<Car> car = catalogCache.findCar(id);
         if (car.isPresent()) {
-            log.info("Car with id {} found", id);
+            log.debug("Car with id {} found", id);
             return ResponseEntity.status(HttpStatus.OK).body(car.get());
         }
         log.warn("Car with id {} not found", id);
@@ -58,22 +112,48 @@ public class RestApiCarController {
 
     @PostMapping
     ResponseEntity<Car> postCar(@Valid @RequestBody Car car) {
+        // С @Version новая сущность (version == null) сохраняется через persist, и повторный id дал бы
+        // ошибку первичного ключа; существующую запись заменяет PUT
+        if (carRepository.existsById(car.getId())) {
+            log.warn("Car with id {} already exists", car.getId());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
         Car savedCar = carRepository.save(car);
         log.info("Car with id {} posted", car.getId());
         return ResponseEntity.status(HttpStatus.CREATED).body(savedCar);
     }
 
+    // PUT заменяет машину целиком (все поля обязательны): один UPDATE по id, без SELECT;
+    // если машины нет — создаёт её одним INSERT (new сущность сохраняется через persist, без merge)
     @PutMapping("/{id}")
     ResponseEntity<Car> putCar(@PathVariable String id, @RequestBody Car car) {
-        if (carRepository.existsById(id)) {
-            Car carInDatabase = carRepository.findById(id).get();
-            car.setId(carInDatabase.getId());
-            car.setName(carInDatabase.getName());
-            Car savedCar = carRepository.save(car);
+        car.setId(id);
+        Set<ConstraintViolation<Car>> violations = validator.validate(car);
+        if (!violations.isEmpty()) {
+            log.warn("Invalid car with id {}: {}", id, violations);
+            return ResponseEntity.badRequest().build();
+        }
+        if (carRepository.update(id, car.getName(), EntityVersion.now()) > 0) {
+            catalogCache.evictCar(id); // UPDATE-запрос обходит слушатель сущности
             log.info("Car with id {} updated", id);
-            return new ResponseEntity<>(savedCar, HttpStatus.OK);
+            return ResponseEntity.ok(car);
         }
-        return postCar(car);
+        try {
+            Car savedCar = carRepository.save(car);
+            log.info("Car with id {} posted", id);
+            return ResponseEntity.status(HttpStatus.CREATED).body(savedCar);
+        } catch (DataIntegrityViolationException exception) {
+            // Параллельный запрос успел создать машину с тем же id
+            log.warn("Car with id {} was created concurrently", id);
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    // Массовая загрузка: JSON-массив или NDJSON, тело читается потоково и добавляется пакетами;
+    // в ответе — сколько строк добавлено и какие отклонены
+    @PostMapping(path = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, StreamingJsonWriter.APPLICATION_NDJSON_VALUE})
+    BulkImportResult postCarsBulk(InputStream body) throws IOException {
+        return catalogBulkImporter.importCars(body);
     }
 
     @DeleteMapping("/{id}")
@@ -1,19 +1,31 @@
 package de.ait.javalessons.controller;
 
-import de.ait.javalessons.model.Bet;
+import de.ait.javalessons.model.BetHistoryEntry;
 import de.ait.javalessons.model.Player;
 import de.ait.javalessons.repository.BetRepository;
 import de.ait.javalessons.repository.PlayerRepository;
+import de.ait.javalessons.service.BetEngine;
+import de.ait.javalessons.utils.StreamingJsonWriter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDateTime;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 
 @Slf4j
 @RestController
@@ -24,9 +36,33 @@ public class RestApiCasinoController {
 
     private BetRepository betRepository;
 
-    public RestApiCasinoController(PlayerRepository playerRepository, BetRepository betRepository) {
+    private StreamingJsonWriter streamingJsonWriter;
+
+    private BetEngine betEngine;
+
+    // Счётчики ставок по исходу: rate(casino_bets_total) — ставки в секунду,
+    // rate(casino_bets_total{outcome="win"}) / rate(casino_bets_total{outcome=~"win|loss"}) — доля выигрышей
+    private final Map<BetEngine.BetOutcome, Counter> betCounters = new EnumMap<>(BetEngine.BetOutcome.class);
+
+    private final DistributionSummary betAmounts;
+
+    public RestApiCasinoController(PlayerRepository playerRepository, BetRepository betRepository,
+                                   StreamingJsonWriter streamingJsonWriter,
+                                   BetEngine betEngine,
+                                   MeterRegistry meterRegistry) {
         this.playerRepository = playerRepository;
         this.betRepository = betRepository;
+        this.streamingJsonWriter = streamingJsonWriter;
+        this.betEngine = betEngine;
+        for (BetEngine.BetOutcome outcome : BetEngine.BetOutcome.values()) {
+            betCounters.put(outcome, Counter.builder("casino.bets")
+                    .description("Placed bets by outcome")
+                    .tag("outcome", outcome.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+        this.betAmounts = DistributionSummary.builder("casino.bet.amount")
+                .description("Amount of accepted bets")
+                .register(meterRegistry);
     }
 
     @PostMapping("/player")
@@ -42,41 +78,45 @@ public class RestApiCasinoController {
 
     @PostMapping("/bet")
     public String placeBet(@RequestParam Long playerId, @RequestParam int amount) {
-        Player player = playerRepository.findById(playerId).orElseThrow(
-                () -> new IllegalArgumentException("Игрок не найден"));
-        if (player.getBalance() < amount) {
-            return "Недостаточно средств";
+        BetEngine.BetOutcome outcome = betEngine.placeBet(playerId, amount);
+        betCounters.get(outcome).increment();
+        if (outcome != BetEngine.BetOutcome.INSUFFICIENT_FUNDS) {
+            betAmounts.record(amount);
         }
-
-        boolean win = Math.random() > 0.5;
-        int winSize = win ? amount * 2 : 0;
-
-        Bet bet = new Bet();
-        bet.setAmount(amount);
-        bet.setWin(win);
-        bet.setTimeOfBet(LocalDateTime.now());
-
-        player.addBett(bet);
-
-        player.setBalance(player.getBalance() - amount + winSize);
-
-        playerRepository.save(player);
-
-        if (win) {
-            return "Поздравляем, вы выиграли";
-        }
-        return "Вы проиграли";
+        return switch (outcome) {
+            case INSUFFICIENT_FUNDS -> "Недостаточно средств";
+            case WIN -> "Поздравляем, вы выиграли";
+            case LOSS -> "Вы проиграли";
+        };
     }
 
+    // История ставок постранично, новые сверху: /casino/player/{id}/bets?size=100&beforeTime=...&beforeId=...
+    // Коллекция Player.bets не загружается — читается только нужная страница проекций
     @GetMapping("/player/{id}/bets")
-    public List<Bet> getPlayersBets(@PathVariable Long id) {
-        Player player = playerRepository.findById(id).orElseThrow();
-        return player.getBets();
+    public ResponseEntity<List<BetHistoryEntry>> getPlayersBets(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "100") int size,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime beforeTime,
+            @RequestParam(required = false) Long beforeId) {
+        if (!playerRepository.existsById(id)) {
+            return ResponseEntity.notFound().build();
+        }
+        List<BetHistoryEntry> bets = beforeTime == null || beforeId == null
+                ? betRepository.findHistory(id, StreamingJsonWriter.pageLimit(size))
+                : betRepository.findHistoryBefore(id, beforeTime, beforeId, StreamingJsonWriter.pageLimit(size));
+        return ResponseEntity.ok(bets);
     }
 
     @GetMapping("/casino/winners")
-    public List<Bet> getWinnersBets(){
-        return betRepository.getAllByWinIsTrue();
+    public ResponseEntity<StreamingResponseBody> getWinnersBets(
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept){
+        return streamingJsonWriter.stream(accept, betRepository::streamWinners);
+    }
+
+    // Keyset-пагинация: /casino/casino/winners?size=100&after=<id последней ставки предыдущей страницы>
+    @GetMapping(value = "/casino/winners", params = "size")
+    public List<BetHistoryEntry> getWinnersBetsPage(@RequestParam(defaultValue = "0") Long after, @RequestParam int size){
+        return betRepository.findWinnersAfter(after, StreamingJsonWriter.pageLimit(size));
     }
 
 
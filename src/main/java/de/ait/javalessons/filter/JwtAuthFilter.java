@@ -1,19 +1,23 @@
 package de.ait.javalessons.filter;
 
+import de.ait.javalessons.serice.CachingUserDetailService;
+import de.ait.javalessons.utils.JwtTokenCache;
 import de.ait.javalessons.utils.JwtUtils;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Optional;
 
 /**
  * Фильтр, который проверяет наличие и валидность JWT-токена в каждом запросе.
@@ -22,11 +26,18 @@ import java.io.IOException;
 @Component
 public class JwtAuthFilter extends OncePerRequestFilter {
 
+    @Autowired
+    private JwtTokenCache jwtTokenCache; // Кэш проверенных JWT-токенов
+
     @Autowired
     private JwtUtils jwtUtils; // Утилита для работы с JWT
 
     @Autowired
-    private UserDetailsService userDetailsService; // Сервис для загрузки данных пользователя
+    private CachingUserDetailService userDetailsService; // Кэширующий сервис для загрузки данных пользователя
+
+    // Если true — principal собирается из claim "roles" токена, без обращения к базе
+    @Value("${jwt.principal-from-claims:false}")
+    private boolean principalFromClaims;
 
     /**
      * Метод выполняется один раз на каждый HTTP-запрос.
@@ -47,14 +58,20 @@ public class JwtAuthFilter extends OncePerRequestFilter {
             // Извлекаем токен (без префикса "Bearer ")
             String token = authHeader.substring(7);
 
-            // Проверяем валидность токена
-            if (jwtUtils.validateToken(token)) {
+            // Проверяем валидность токена и получаем его claims за один разбор (или из кэша)
+            Optional<Claims> claims = jwtTokenCache.getClaims(token);
+            if (claims.isPresent()) {
 
                 // Извлекаем имя пользователя из токена
-                String username = jwtUtils.extractUsername(token);
+                String username = claims.get().getSubject();
 
-                // Загружаем пользователя из базы или другого источника
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+                // Берём пользователя из claims токена (если включено) или из кэша/базы
+                Optional<UserDetails> fromClaims = principalFromClaims
+                        ? jwtUtils.extractUserDetails(claims.get())
+                        : Optional.empty();
+                UserDetails userDetails = fromClaims.isPresent()
+                        ? fromClaims.get()
+                        : userDetailsService.loadUserByUsername(username);
 
                 // Создаём объект аутентификации с правами пользователя
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
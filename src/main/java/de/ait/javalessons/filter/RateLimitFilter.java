@@ -0,0 +1,139 @@
+package de.ait.javalessons.filter;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import de.ait.javalessons.properties.RateLimitProperties;
+import de.ait.javalessons.utils.TokenBucket;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Фильтр, который ограничивает частоту запросов каждого клиента.
+ * Стоит в цепочке сразу после {@link JwtAuthFilter}: клиент с валидным токеном определяется по имени пользователя,
+ * остальные (в том числе /auth/login) — по IP-адресу.
+ * На каждого клиента и маршрут заводится {@link TokenBucket}; корзины хранятся в ограниченном кэше Caffeine
+ * с вытеснением давно неактивных клиентов. При превышении лимита — ответ 429 с заголовком Retry-After.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    /**
+     * Маршрут со своим лимитом и своими корзинами клиентов.
+     */
+    private record Route(String pattern, RateLimitProperties.Limit limit,
+                         Cache<String, TokenBucket> buckets, Counter rejected) {
+
+        /**
+         * Шаблон — точный путь (/auth/login) или префикс (/casino/**). Сравнение строк вместо PathPattern:
+         * разбор пути в PathContainer на каждый запрос стоил бы дороже всего остального фильтра.
+         */
+        boolean matches(String path) {
+            if (pattern.endsWith("/**")) {
+                return path.startsWith(pattern.substring(0, pattern.length() - 2))
+                        || path.equals(pattern.substring(0, pattern.length() - 3));
+            }
+            return path.equals(pattern);
+        }
+    }
+
+    private final boolean enabled;
+
+    private final List<Route> routes = new ArrayList<>();
+
+    private final Route defaultRoute;
+
+    public RateLimitFilter(RateLimitProperties properties, MeterRegistry meterRegistry) {
+        this.enabled = properties.isEnabled();
+        for (Map.Entry<String, RateLimitProperties.Limit> entry : properties.getRoutes().entrySet()) {
+            routes.add(route(entry.getKey(), entry.getValue(), properties, meterRegistry));
+        }
+        this.defaultRoute = route("/**", properties.getDefaultLimit(), properties, meterRegistry);
+    }
+
+    private static Route route(String pattern, RateLimitProperties.Limit limit,
+                               RateLimitProperties properties, MeterRegistry meterRegistry) {
+        Cache<String, TokenBucket> buckets = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxClients())
+                .expireAfterAccess(properties.getIdleTimeout())
+                // Обслуживание кэша (учёт обращений, вытеснение) — в вызывающем потоке, пакетами и через tryLock.
+                // По умолчанию оно отправляется в ForkJoinPool, и будить его поток дороже самого обслуживания
+                .executor(Runnable::run)
+                .build();
+        Counter rejected = Counter.builder("rate.limit.rejected")
+                .description("Requests rejected with 429")
+                .tag("route", pattern)
+                .register(meterRegistry);
+        return new Route(pattern, limit, buckets, rejected);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        if (!enabled) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        Route route = findRoute(request);
+        TokenBucket bucket = route.buckets().get(clientKey(request),
+                key -> new TokenBucket(route.limit().getRate(), route.limit().getCapacity()));
+        long waitNanos = bucket.tryAcquire();
+        if (waitNanos > 0) {
+            route.rejected().increment();
+            // Retry-After — в целых секундах, округляем вверх
+            long retryAfter = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L));
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+            response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+            response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            response.getWriter().write("Слишком много запросов, повторите позже");
+            return;
+        }
+
+        // Передаём управление дальше по цепочке фильтров
+        filterChain.doFilter(request, response);
+    }
+
+    private Route findRoute(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        for (Route route : routes) {
+            if (route.matches(path)) {
+                return route;
+            }
+        }
+        return defaultRoute;
+    }
+
+    /**
+     * Ключ клиента: имя пользователя, установленное {@link JwtAuthFilter}, или IP-адрес.
+     * За обратным прокси адрес клиента берётся из X-Forwarded-For только при server.forward-headers-strategy.
+     */
+    private static String clientKey(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken)) {
+            return "user:" + authentication.getName();
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+}
@@ -1,6 +1,8 @@
 package de.ait.javalessons.model;
 
+import de.ait.javalessons.serice.AppUserCacheListener;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
@@ -11,6 +13,7 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 @Entity
+@EntityListeners(AppUserCacheListener.class) // Сбрасывает кэш UserDetails при изменении пользователя
 @Getter
 @Setter
 @NoArgsConstructor
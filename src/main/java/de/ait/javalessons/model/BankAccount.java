@@ -1,13 +1,17 @@
 package de.ait.javalessons.model;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.math.BigDecimal;
+
 @Entity
 @Data
 @NoArgsConstructor
@@ -20,5 +24,11 @@ public class BankAccount {
 
     private String ownerName;
 
-    private Double balance;
+    // BigDecimal вместо Double — без накопления ошибок округления
+    @Column(precision = 19, scale = 2)
+    private BigDecimal balance;
+
+    // Версия для оптимистической блокировки
+    @Version
+    private Long version;
 }
@@ -6,11 +6,14 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToMany;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -25,6 +28,8 @@ import java.time.LocalDateTime;
 @ToString
 @Data
 @Entity
+// Индекс под историю ставок игрока, отсортированную по времени
+@Table(indexes = @Index(name = "idx_bet_player_time", columnList = "player_id, time_of_bet"))
 public class Bet {
 
     @Id
@@ -40,5 +45,7 @@ public class Bet {
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "player_id")
     @JsonBackReference
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private Player player;
 }
@@ -0,0 +1,27 @@
+package de.ait.javalessons.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Проекция ставки для истории и списка выигрышей.
+ * Читается JPQL-выражением select new ..., поэтому не тянет за собой Player и его коллекцию bets.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BetHistoryEntry {
+
+    private Long id;
+
+    private int amount;
+
+    private boolean win;
+
+    private LocalDateTime timeOfBet;
+
+    private Long playerId;
+}
@@ -1,22 +1,32 @@
 package de.ait.javalessons.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import de.ait.javalessons.service.BookSearchIndexListener;
+import de.ait.javalessons.service.CatalogCacheListener;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.Id;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.NotBlank;
-import lombok.AllArgsConstructor;
+import jakarta.validation.constraints.Positive;
 import lombok.Data;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
 
+import java.time.Instant;
+
 @NoArgsConstructor
-@AllArgsConstructor
 @Getter
 @Setter
 @ToString
 @Data
 @Entity
+// Сбрасывают кэш чтения и обновляют поисковый индекс при изменении книги
+@EntityListeners({CatalogCacheListener.class, BookSearchIndexListener.class})
 public class Book {
 
     @Id
@@ -30,7 +40,29 @@ public class Book {
     @NotBlank (message = "Автор книги должен быть обязательно")
     private String author;
 
-    @NotBlank (message = "Год выпуска не может быть пустым")
+    @Positive(message = "Год выпуска должен быть положительным") // @NotBlank к int неприменим
     private int publishYear;
 
+    // Версия строки: растёт при каждом изменении, из неё строится ETag. В JSON не входит
+    @Version
+    @JsonIgnore
+    private Long version;
+
+    // Время последнего изменения для Last-Modified (с точностью до миллисекунд, как хранится в базе)
+    @JsonIgnore
+    private Instant lastModified;
+
+    public Book(String id, String title, String author, int publishYear) {
+        this.id = id;
+        this.title = title;
+        this.author = author;
+        this.publishYear = publishYear;
+    }
+
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        lastModified = EntityVersion.now();
+    }
+
 }
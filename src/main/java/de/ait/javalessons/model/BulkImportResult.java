@@ -0,0 +1,55 @@
+package de.ait.javalessons.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Итог массовой загрузки: сколько строк прочитано, добавлено и отклонено.
+ * Синтаксическая ошибка в теле — не строка: она останавливает чтение и сообщается отдельно в parseError,
+ * а в received, failed и errors не учитывается.
+ * Ошибки перечисляются по строкам, но не больше {@link #MAX_REPORTED_ERRORS},
+ * чтобы ответ на загрузку с миллионом неверных строк не занимал память пропорционально телу запроса.
+ */
+@Data
+@NoArgsConstructor
+public class BulkImportResult {
+
+    public static final int MAX_REPORTED_ERRORS = 1000;
+
+    private long received;
+
+    private long inserted;
+
+    private long failed;
+
+    private List<RowError> errors = new ArrayList<>();
+
+    // null — тело прочитано до конца; иначе строки до ошибки обработаны, после неё не читались
+    private String parseError;
+
+    public void addError(long row, String id, String message) {
+        failed++;
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add(new RowError(row, id, message));
+        }
+    }
+
+    /**
+     * Ошибка в строке: row — номер объекта во входных данных, начиная с 1.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+
+        private long row;
+
+        private String id;
+
+        private String message;
+    }
+}
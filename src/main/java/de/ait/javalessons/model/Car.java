@@ -1,25 +1,32 @@
 package de.ait.javalessons.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import de.ait.javalessons.service.CatalogCacheListener;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.NotBlank;
-import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
 
+import java.time.Instant;
+
 
 @NoArgsConstructor
-@AllArgsConstructor
 @Getter
 @Setter
 @ToString
 @Data
 @Entity
+@EntityListeners(CatalogCacheListener.class) // Сбрасывает кэш чтения при изменении машины
 public class Car {
 
     @Id
@@ -30,4 +37,24 @@ public class Car {
     @NotBlank(message = "Название не должно быть пустым")
     private  String name;
 
+    // Версия строки: растёт при каждом изменении, из неё строится ETag. В JSON не входит
+    @Version
+    @JsonIgnore
+    private Long version;
+
+    // Время последнего изменения для Last-Modified (с точностью до миллисекунд, как хранится в базе)
+    @JsonIgnore
+    private Instant lastModified;
+
+    public Car(String id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        lastModified = EntityVersion.now();
+    }
+
 }
@@ -0,0 +1,40 @@
+package de.ait.javalessons.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Версия строки и время её последнего изменения — валидаторы для ETag и Last-Modified.
+ * Читается JPQL-выражением select new ..., поэтому для условного GET строку целиком загружать не нужно.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EntityVersion {
+
+    private Long version;
+
+    private Instant lastModified;
+
+    /**
+     * Сильный ETag: версия и время изменения. Время отличает строку, удалённую и созданную заново
+     * с тем же id: у неё версия снова начинается с 0.
+     *
+     * @return ETag в кавычках
+     */
+    public String eTag() {
+        long lastModifiedMillis = lastModified == null ? 0 : lastModified.toEpochMilli();
+        return "\"" + version + "-" + lastModifiedMillis + "\"";
+    }
+
+    /**
+     * Текущее время с той точностью, с которой хранится lastModified (миллисекунды).
+     */
+    public static Instant now() {
+        return Instant.now().truncatedTo(ChronoUnit.MILLIS);
+    }
+}
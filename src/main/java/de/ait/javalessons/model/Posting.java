@@ -0,0 +1,32 @@
+package de.ait.javalessons.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Одна проводка в пакетной обработке /api/accounts/postings.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Posting {
+
+    public enum Type {
+        DEPOSIT,
+        WITHDRAW,
+        TRANSFER
+    }
+
+    private Type type;
+
+    // Счёт, который пополняется (DEPOSIT) или списывается (WITHDRAW, TRANSFER)
+    private String accountId;
+
+    // Счёт получателя, только для TRANSFER
+    private String targetAccountId;
+
+    private BigDecimal amount;
+}
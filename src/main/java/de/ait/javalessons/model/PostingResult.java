@@ -0,0 +1,25 @@
+package de.ait.javalessons.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Результат обработки одной проводки: индекс во входном списке, статус и причина отказа.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PostingResult {
+
+    public enum Status {
+        APPLIED,
+        REJECTED
+    }
+
+    private int index;
+
+    private Status status;
+
+    private String message;
+}
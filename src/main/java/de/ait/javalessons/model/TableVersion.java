@@ -0,0 +1,40 @@
+package de.ait.javalessons.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Сводная версия таблицы для ETag списка: число строк, сумма версий и время последнего изменения.
+ * Изменение строки увеличивает её версию и время, добавление — число строк и время, удаление — число строк.
+ * Сводка не монотонна: удаление одной строки и добавление другой в ту же миллисекунду (с той же суммой версий)
+ * дают прежнее значение, и клиент может получить 304 на изменившийся список. Для списка каталога это допустимо;
+ * точной версии понадобился бы отдельный счётчик изменений таблицы.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TableVersion {
+
+    private Long count;
+
+    private Long versionSum;
+
+    // null, если таблица пуста
+    private Instant lastModified;
+
+    /**
+     * Слабый ETag списка в заданном формате: JSON-массив и NDJSON — разные представления.
+     * Слабый, потому что версия читается отдельным запросом до потоковой выдачи строк: запись между ними
+     * попадает в тело, но не в ETag, и побайтового совпадения тела с ETag гарантировать нельзя.
+     *
+     * @param format формат ответа (json или ndjson)
+     * @return ETag вида W/"..."
+     */
+    public String eTag(String format) {
+        long lastModifiedMillis = lastModified == null ? 0 : lastModified.toEpochMilli();
+        return "W/\"" + count + "-" + versionSum + "-" + lastModifiedMillis + "-" + format + "\"";
+    }
+}
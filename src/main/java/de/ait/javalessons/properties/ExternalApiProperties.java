@@ -2,10 +2,44 @@ package de.ait.javalessons.properties;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.time.Duration;
+
+/**
+ * Настройки внешнего API и HTTP-клиента для обращения к нему.
+ * Длительности задаются в формате Spring Boot: 500ms, 2s, 1m (число без единиц — миллисекунды).
+ */
 @ConfigurationProperties(prefix = "external.api")
 public class ExternalApiProperties {
     private String url;
-    private String timeout;
+    // Ожидание ответа (таймаут чтения сокета)
+    private Duration timeout = Duration.ofSeconds(5);
+    // Установка TCP-соединения
+    private Duration connectTimeout = Duration.ofSeconds(2);
+    // Ожидание свободного соединения из пула, когда все соединения с хостом заняты
+    private Duration poolTimeout = Duration.ofMillis(500);
+    // Сколько простаивающее соединение остаётся в пуле для повторного использования (keep-alive)
+    private Duration keepAlive = Duration.ofSeconds(30);
+    private int maxConnectionsPerHost = 20;
+    private int maxConnectionsTotal = 50;
+    // Сколько ответ считается свежим; 0 — не кэшировать
+    private Duration cacheTtl = Duration.ofSeconds(30);
+    // Сколько после устаревания ответ ещё отдаётся, пока идёт его обновление в фоне
+    private Duration cacheStaleTtl = Duration.ofMinutes(5);
+    // Предохранитель (circuit breaker): размыкается, когда среди последних circuit-window-size вызовов
+    // доля ошибок или медленных вызовов (в процентах) достигает порога; до circuit-minimum-calls вызовов не считает
+    private float circuitFailureRateThreshold = 50;
+    private float circuitSlowCallRateThreshold = 50;
+    // Вызов дольше этого считается медленным
+    private Duration circuitSlowCallDuration = Duration.ofSeconds(1);
+    private int circuitWindowSize = 20;
+    private int circuitMinimumCalls = 10;
+    // Сколько цепь остаётся разомкнутой, прежде чем пропустить circuit-half-open-calls пробных вызовов
+    private Duration circuitOpenDuration = Duration.ofSeconds(30);
+    private int circuitHalfOpenCalls = 3;
+    // Изоляция (bulkhead): столько вызовов API одновременно, остальные сразу получают fallback
+    private int bulkheadMaxConcurrentCalls = 10;
+    // Ответ, когда внешний API недоступен или вызов отклонён
+    private String fallback = "";
 
     public String getUrl() {
         return url;
@@ -13,11 +47,139 @@ public class ExternalApiProperties {
     public void setUrl(String url) {
         this.url = url;
     }
-    public String getTimeout() {
+    public Duration getTimeout() {
         return timeout;
     }
 
-    public void setTimeout(String timeout) {
+    public void setTimeout(Duration timeout) {
         this.timeout = timeout;
     }
+
+    public Duration getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(Duration connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public Duration getPoolTimeout() {
+        return poolTimeout;
+    }
+
+    public void setPoolTimeout(Duration poolTimeout) {
+        this.poolTimeout = poolTimeout;
+    }
+
+    public Duration getKeepAlive() {
+        return keepAlive;
+    }
+
+    public void setKeepAlive(Duration keepAlive) {
+        this.keepAlive = keepAlive;
+    }
+
+    public int getMaxConnectionsPerHost() {
+        return maxConnectionsPerHost;
+    }
+
+    public void setMaxConnectionsPerHost(int maxConnectionsPerHost) {
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+    }
+
+    public int getMaxConnectionsTotal() {
+        return maxConnectionsTotal;
+    }
+
+    public void setMaxConnectionsTotal(int maxConnectionsTotal) {
+        this.maxConnectionsTotal = maxConnectionsTotal;
+    }
+
+    public Duration getCacheTtl() {
+        return cacheTtl;
+    }
+
+    public void setCacheTtl(Duration cacheTtl) {
+        this.cacheTtl = cacheTtl;
+    }
+
+    public Duration getCacheStaleTtl() {
+        return cacheStaleTtl;
+    }
+
+    public void setCacheStaleTtl(Duration cacheStaleTtl) {
+        this.cacheStaleTtl = cacheStaleTtl;
+    }
+
+    public float getCircuitFailureRateThreshold() {
+        return circuitFailureRateThreshold;
+    }
+
+    public void setCircuitFailureRateThreshold(float circuitFailureRateThreshold) {
+        this.circuitFailureRateThreshold = circuitFailureRateThreshold;
+    }
+
+    public float getCircuitSlowCallRateThreshold() {
+        return circuitSlowCallRateThreshold;
+    }
+
+    public void setCircuitSlowCallRateThreshold(float circuitSlowCallRateThreshold) {
+        this.circuitSlowCallRateThreshold = circuitSlowCallRateThreshold;
+    }
+
+    public Duration getCircuitSlowCallDuration() {
+        return circuitSlowCallDuration;
+    }
+
+    public void setCircuitSlowCallDuration(Duration circuitSlowCallDuration) {
+        this.circuitSlowCallDuration = circuitSlowCallDuration;
+    }
+
+    public int getCircuitWindowSize() {
+        return circuitWindowSize;
+    }
+
+    public void setCircuitWindowSize(int circuitWindowSize) {
+        this.circuitWindowSize = circuitWindowSize;
+    }
+
+    public int getCircuitMinimumCalls() {
+        return circuitMinimumCalls;
+    }
+
+    public void setCircuitMinimumCalls(int circuitMinimumCalls) {
+        this.circuitMinimumCalls = circuitMinimumCalls;
+    }
+
+    public Duration getCircuitOpenDuration() {
+        return circuitOpenDuration;
+    }
+
+    public void setCircuitOpenDuration(Duration circuitOpenDuration) {
+        this.circuitOpenDuration = circuitOpenDuration;
+    }
+
+    public int getCircuitHalfOpenCalls() {
+        return circuitHalfOpenCalls;
+    }
+
+    public void setCircuitHalfOpenCalls(int circuitHalfOpenCalls) {
+        this.circuitHalfOpenCalls = circuitHalfOpenCalls;
+    }
+
+    public int getBulkheadMaxConcurrentCalls() {
+        return bulkheadMaxConcurrentCalls;
+    }
+
+    public void setBulkheadMaxConcurrentCalls(int bulkheadMaxConcurrentCalls) {
+        this.bulkheadMaxConcurrentCalls = bulkheadMaxConcurrentCalls;
+    }
+
+    public String getFallback() {
+        return fallback;
+    }
+
+    public void setFallback(String fallback) {
+        this.fallback = fallback;
+    }
 }
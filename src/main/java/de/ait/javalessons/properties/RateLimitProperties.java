@@ -0,0 +1,49 @@
+package de.ait.javalessons.properties;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Настройки ограничения частоты запросов (rate-limit.*).
+ * Лимиты для отдельных маршрутов задаются по точному пути или префиксу вида /casino/**, например:
+ * rate-limit.routes[/auth/login].rate=1
+ * rate-limit.routes[/auth/login].capacity=5
+ * Запросы, не подходящие ни под один маршрут, ограничиваются лимитом rate-limit.default-limit.
+ */
+@Data
+@ConfigurationProperties(prefix = "rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    // Сколько клиентов (корзин) на маршрут хранится в памяти; самые давние вытесняются
+    private long maxClients = 100_000;
+
+    // Корзина клиента, от которого не было запросов дольше этого времени, удаляется.
+    // Должно быть не меньше capacity / rate, иначе клиент получит полную корзину раньше срока
+    private Duration idleTimeout = Duration.ofMinutes(10);
+
+    private Limit defaultLimit = new Limit(100, 200);
+
+    // Порядок важен: применяется первый подходящий шаблон
+    private Map<String, Limit> routes = new LinkedHashMap<>();
+
+    /**
+     * Лимит: rate запросов в секунду в среднем и не больше capacity подряд.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Limit {
+
+        private double rate;
+
+        private int capacity;
+    }
+}
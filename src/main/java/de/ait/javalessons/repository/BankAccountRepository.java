@@ -1,11 +1,61 @@
 package de.ait.javalessons.repository;
 
 import de.ait.javalessons.model.BankAccount;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface BankAccountRepository  extends JpaRepository<BankAccount, String> {
     List<BankAccount> findByOwnerName(String ownerName);
 
+    // Keyset-пагинация: следующая страница после указанного id
+    List<BankAccount> findByIdGreaterThanOrderByIdAsc(String id, Limit limit);
+
+    // Курсор по всей таблице для потоковой отдачи; вызывать внутри транзакции
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select a from BankAccount a order by a.id")
+    Stream<BankAccount> streamAll();
+
+    /**
+     * Атомарно увеличивает баланс одним UPDATE.
+     *
+     * @return количество изменённых строк (0 — счёт не найден)
+     */
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("update BankAccount a set a.balance = a.balance + :amount, a.version = a.version + 1 where a.id = :id")
+    int deposit(@Param("id") String id, @Param("amount") BigDecimal amount);
+
+    /**
+     * Атомарно уменьшает баланс одним UPDATE, только если средств достаточно.
+     *
+     * @return количество изменённых строк (0 — счёт не найден или недостаточно средств)
+     */
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("update BankAccount a set a.balance = a.balance - :amount, a.version = a.version + 1 " +
+            "where a.id = :id and a.balance >= :amount")
+    int withdraw(@Param("id") String id, @Param("amount") BigDecimal amount);
+
+    /**
+     * Загружает счета с блокировкой строк (SELECT ... FOR UPDATE) в порядке id.
+     * Одинаковый порядок захвата блокировок исключает взаимоблокировки между параллельными пакетами.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select a from BankAccount a where a.id in :ids order by a.id")
+    List<BankAccount> findAllByIdForUpdate(@Param("ids") Collection<String> ids);
+
 }
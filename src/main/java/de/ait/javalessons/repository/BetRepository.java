@@ -1,12 +1,51 @@
 package de.ait.javalessons.repository;
 
 import de.ait.javalessons.model.Bet;
+import de.ait.javalessons.model.BetHistoryEntry;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface BetRepository extends CrudRepository <Bet, Long>{
 
     List<Bet> getAllByWinIsTrue();
 
+    // Keyset-пагинация выигрышных ставок по id
+    @Query("select new de.ait.javalessons.model.BetHistoryEntry(b.id, b.amount, b.win, b.timeOfBet, b.player.id) " +
+            "from Bet b where b.win = true and b.id > :id order by b.id")
+    List<BetHistoryEntry> findWinnersAfter(@Param("id") Long id, Limit limit);
+
+    // Курсор по выигрышным ставкам для потоковой отдачи; вызывать внутри транзакции
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select new de.ait.javalessons.model.BetHistoryEntry(b.id, b.amount, b.win, b.timeOfBet, b.player.id) " +
+            "from Bet b where b.win = true order by b.id")
+    Stream<BetHistoryEntry> streamWinners();
+
+    // Первая страница истории ставок игрока, новые сверху (индекс idx_bet_player_time)
+    @Query("select new de.ait.javalessons.model.BetHistoryEntry(b.id, b.amount, b.win, b.timeOfBet, b.player.id) " +
+            "from Bet b where b.player.id = :playerId order by b.timeOfBet desc, b.id desc")
+    List<BetHistoryEntry> findHistory(@Param("playerId") Long playerId, Limit limit);
+
+    // Следующая страница истории: ставки строго раньше последней (timeOfBet, id) предыдущей страницы
+    @Query("select new de.ait.javalessons.model.BetHistoryEntry(b.id, b.amount, b.win, b.timeOfBet, b.player.id) " +
+            "from Bet b where b.player.id = :playerId " +
+            "and (b.timeOfBet < :beforeTime or (b.timeOfBet = :beforeTime and b.id < :beforeId)) " +
+            "order by b.timeOfBet desc, b.id desc")
+    List<BetHistoryEntry> findHistoryBefore(@Param("playerId") Long playerId,
+                                            @Param("beforeTime") LocalDateTime beforeTime,
+                                            @Param("beforeId") Long beforeId,
+                                            Limit limit);
+
 }
@@ -1,7 +1,57 @@
 package de.ait.javalessons.repository;
 
 import de.ait.javalessons.model.Book;
+import de.ait.javalessons.model.EntityVersion;
+import de.ait.javalessons.model.TableVersion;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface BookRepository extends CrudRepository<Book, String> {
+
+    // Keyset-пагинация: следующая страница после указанного id
+    List<Book> findByIdGreaterThanOrderByIdAsc(String id, Limit limit);
+
+    // Курсор по всей таблице для потоковой отдачи; вызывать внутри транзакции
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select b from Book b order by b.id")
+    Stream<Book> streamAll();
+
+    // Версия одной строки для условного GET — без загрузки сущности
+    @Query("select new de.ait.javalessons.model.EntityVersion(b.version, b.lastModified) from Book b where b.id = :id")
+    Optional<EntityVersion> findVersionById(@Param("id") String id);
+
+    // Сводная версия таблицы для ETag списка
+    @Query("select new de.ait.javalessons.model.TableVersion(count(b), coalesce(sum(b.version), 0L), max(b.lastModified)) " +
+            "from Book b")
+    TableVersion findTableVersion();
+
+    /**
+     * Заменяет поля книги одним UPDATE без предварительного SELECT, увеличивает версию и возвращает её
+     * тем же запросом: в H2 SELECT из FINAL TABLE видит строку уже после изменения.
+     * Слушатели сущности при этом не вызываются — кэш чтения и поисковый индекс обновляет вызывающий.
+     * Нативный запрос не обновляет сущности, уже загруженные в текущий контекст; вызывать без них.
+     *
+     * @return новая версия книги; пусто, если книги с таким id нет
+     */
+    @Transactional
+    @Query(value = "select version from final table (update book set title = :title, author = :author, " +
+            "publish_year = :publishYear, version = version + 1, last_modified = :lastModified where id = :id)",
+            nativeQuery = true)
+    Optional<Long> updateReturningVersion(@Param("id") String id, @Param("title") String title,
+                                          @Param("author") String author, @Param("publishYear") int publishYear,
+                                          @Param("lastModified") Instant lastModified);
 }
@@ -1,9 +1,54 @@
 package de.ait.javalessons.repository;
 
 import de.ait.javalessons.model.Car;
+import de.ait.javalessons.model.EntityVersion;
+import de.ait.javalessons.model.TableVersion;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface CarRepository extends CrudRepository<Car, String> {
 
+    // Keyset-пагинация: следующая страница после указанного id
+    List<Car> findByIdGreaterThanOrderByIdAsc(String id, Limit limit);
+
+    // Курсор по всей таблице для потоковой отдачи; вызывать внутри транзакции
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select c from Car c order by c.id")
+    Stream<Car> streamAll();
+
+    // Версия одной строки для условного GET — без загрузки сущности
+    @Query("select new de.ait.javalessons.model.EntityVersion(c.version, c.lastModified) from Car c where c.id = :id")
+    Optional<EntityVersion> findVersionById(@Param("id") String id);
+
+    // Сводная версия таблицы для ETag списка
+    @Query("select new de.ait.javalessons.model.TableVersion(count(c), coalesce(sum(c.version), 0L), max(c.lastModified)) " +
+            "from Car c")
+    TableVersion findTableVersion();
+
+    /**
+     * Заменяет поля машины одним UPDATE без предварительного SELECT и увеличивает версию.
+     * Слушатели сущности при этом не вызываются — кэш чтения сбрасывает вызывающий.
+     *
+     * @return количество изменённых строк (0 — машины с таким id нет)
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("update Car c set c.name = :name, c.version = c.version + 1, c.lastModified = :lastModified where c.id = :id")
+    int update(@Param("id") String id, @Param("name") String name, @Param("lastModified") Instant lastModified);
 }
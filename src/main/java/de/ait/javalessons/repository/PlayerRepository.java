@@ -1,7 +1,26 @@
 package de.ait.javalessons.repository;
 
 import de.ait.javalessons.model.Player;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 
 public interface PlayerRepository extends CrudRepository<Player, Long> {
+
+    /**
+     * Списывает ставку и начисляет выигрыш одним условным UPDATE, не загружая игрока и его ставки.
+     *
+     * @return количество изменённых строк (0 — игрок не найден или недостаточно средств)
+     */
+    @Modifying
+    @Query("update Player p set p.balance = p.balance - :amount + :payout where p.id = :id and p.balance >= :amount")
+    int settleBet(@Param("id") Long id, @Param("amount") int amount, @Param("payout") int payout);
+
+    /**
+     * Записывает баланс игрока из in-memory движка ставок.
+     */
+    @Modifying
+    @Query("update Player p set p.balance = :balance where p.id = :id")
+    int updateBalance(@Param("id") Long id, @Param("balance") int balance);
 }
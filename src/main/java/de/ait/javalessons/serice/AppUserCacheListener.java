@@ -0,0 +1,49 @@
+package de.ait.javalessons.serice;
+
+import de.ait.javalessons.model.AppUser;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * JPA-слушатель сущности AppUser: сбрасывает запись в {@link CachingUserDetailService}
+ * после сохранения или удаления пользователя.
+ * Слушатель срабатывает при flush, до фиксации транзакции: параллельный JWT-запрос в этот момент ещё видит
+ * старую строку и может вернуть её в кэш — со старым паролем, ролями или флагом enabled до конца TTL.
+ * Поэтому запись сбрасывается ещё раз после коммита.
+ * Массовые JPQL-обновления слушатели не вызывают — после них кэш нужно сбрасывать вручную.
+ */
+@Component
+public class AppUserCacheListener {
+
+    // ObjectProvider — чтобы не создавать цикл EntityManagerFactory -> слушатель -> репозиторий
+    private final ObjectProvider<CachingUserDetailService> cachingUserDetailService;
+
+    public AppUserCacheListener(ObjectProvider<CachingUserDetailService> cachingUserDetailService) {
+        this.cachingUserDetailService = cachingUserDetailService;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void evict(AppUser appUser) {
+        CachingUserDetailService service = cachingUserDetailService.getIfAvailable();
+        if (service == null) {
+            return;
+        }
+        String username = appUser.getUsername();
+        service.evict(username);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    service.evict(username);
+                }
+            });
+        }
+    }
+}
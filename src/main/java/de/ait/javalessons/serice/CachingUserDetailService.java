@@ -0,0 +1,78 @@
+package de.ait.javalessons.serice;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import de.ait.javalessons.utils.CacheInvalidations;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+
+/**
+ * Кэширующая обёртка над {@link CustomUserDetailService} для JWT-фильтра.
+ * Убирает запрос к базе (AppUserRepository.findByUsername) из каждого аутентифицированного запроса.
+ * Записи ограничены по количеству и времени жизни и сбрасываются явно при изменении AppUser
+ * (см. {@link AppUserCacheListener}).
+ *
+ * Используется только на пути JWT: при логине AuthenticationManager стирает пароль у UserDetails,
+ * поэтому там по-прежнему используется {@link CustomUserDetailService} напрямую.
+ */
+@Service
+public class CachingUserDetailService implements UserDetailsService {
+
+    private final CustomUserDetailService customUserDetailService;
+
+    private final Cache<String, UserDetails> cache;
+
+    private final CacheInvalidations invalidations = new CacheInvalidations();
+
+    public CachingUserDetailService(CustomUserDetailService customUserDetailService,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${user-details.cache.max-size:1000}") long maxSize,
+                                    @Value("${user-details.cache.ttl:5m}") Duration ttl) {
+        this.customUserDetailService = customUserDetailService;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "user.details");
+    }
+
+    /**
+     * Возвращает пользователя из кэша или загружает его из базы.
+     * Отсутствующие пользователи не кэшируются.
+     * Загрузка идёт вне cache.get(key, loader): загрузчик Caffeine выполняется внутри synchronized-блока
+     * ConcurrentHashMap, и виртуальный поток был бы закреплён за несущим потоком на всё время запроса к базе.
+     * Загрузка, пересёкшаяся со сбросом, возвращает результат, но не кладёт его в кэш (см. {@link CacheInvalidations}).
+     *
+     * @param username имя пользователя из токена
+     * @return объект UserDetails
+     * @throws UsernameNotFoundException если пользователь не найден
+     */
+    @Override
+    public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        UserDetails cached = cache.getIfPresent(username);
+        if (cached != null) {
+            return cached;
+        }
+        long generation = invalidations.generation(username);
+        UserDetails loaded = customUserDetailService.loadUserByUsername(username);
+        invalidations.put(cache, username, loaded, generation);
+        return loaded;
+    }
+
+    /**
+     * Удаляет пользователя из кэша. Вызывается при сохранении или удалении AppUser.
+     *
+     * @param username имя пользователя
+     */
+    public void evict(String username) {
+        invalidations.invalidate(cache, username);
+    }
+}
@@ -0,0 +1,205 @@
+package de.ait.javalessons.service;
+
+import de.ait.javalessons.model.BankAccount;
+import de.ait.javalessons.model.Posting;
+import de.ait.javalessons.model.PostingResult;
+import de.ait.javalessons.repository.BankAccountRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeSet;
+
+/**
+ * Сервис изменения баланса банковских счетов.
+ * Пополнение и снятие выполняются в транзакции и не теряют обновления при параллельных запросах.
+ * Поддерживаются две стратегии (свойство bank.account.update-strategy):
+ * - ATOMIC — один условный UPDATE balance = balance ± ? в базе;
+ * - OPTIMISTIC — чтение, изменение и запись с проверкой @Version и повтором при конфликте.
+ */
+@Slf4j
+@Service
+public class BankAccountService {
+
+    public enum UpdateStrategy {
+        ATOMIC,
+        OPTIMISTIC
+    }
+
+    /**
+     * Результат изменения баланса.
+     *
+     * @param account текущее состояние счёта
+     * @param applied false — снятие не выполнено из-за недостатка средств
+     */
+    public record BalanceChange(BankAccount account, boolean applied) {
+    }
+
+    private final BankAccountRepository bankAccountRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final UpdateStrategy updateStrategy;
+
+    private final int maxRetries;
+
+    // Сколько id передаётся в один SELECT ... WHERE id IN (...)
+    private static final int LOCK_CHUNK_SIZE = 1000;
+
+    public BankAccountService(BankAccountRepository bankAccountRepository,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${bank.account.update-strategy:atomic}") UpdateStrategy updateStrategy,
+                              @Value("${bank.account.max-retries:10}") int maxRetries) {
+        this.bankAccountRepository = bankAccountRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.updateStrategy = updateStrategy;
+        this.maxRetries = maxRetries;
+    }
+
+    /**
+     * Пополняет счёт.
+     *
+     * @throws NoSuchElementException если счёт не найден
+     */
+    public BankAccount deposit(String id, BigDecimal amount) {
+        return change(id, amount).account();
+    }
+
+    /**
+     * Снимает деньги со счёта, если средств достаточно.
+     *
+     * @throws NoSuchElementException если счёт не найден
+     */
+    public BalanceChange withdraw(String id, BigDecimal amount) {
+        return change(id, amount.negate());
+    }
+
+    private BalanceChange change(String id, BigDecimal delta) {
+        if (updateStrategy == UpdateStrategy.ATOMIC) {
+            return transactionTemplate.execute(status -> changeAtomically(id, delta));
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> changeOptimistically(id, delta));
+            } catch (OptimisticLockingFailureException exception) {
+                // Другой запрос успел изменить счёт — перечитываем и пробуем снова
+                if (attempt >= maxRetries) {
+                    throw exception;
+                }
+                log.debug("Optimistic lock conflict on account {}, attempt {}", id, attempt);
+            }
+        }
+    }
+
+    private BalanceChange changeAtomically(String id, BigDecimal delta) {
+        int updated = delta.signum() >= 0
+                ? bankAccountRepository.deposit(id, delta)
+                : bankAccountRepository.withdraw(id, delta.negate());
+        // 0 обновлённых строк — либо не хватило средств, либо счёта нет; различает повторное чтение
+        return new BalanceChange(findAccount(id), updated > 0);
+    }
+
+    private BalanceChange changeOptimistically(String id, BigDecimal delta) {
+        BankAccount bankAccount = findAccount(id);
+        BigDecimal newBalance = bankAccount.getBalance().add(delta);
+        if (newBalance.signum() < 0) {
+            return new BalanceChange(bankAccount, false);
+        }
+        bankAccount.setBalance(newBalance);
+        // UPDATE ... WHERE version = ? бросит исключение, если счёт уже изменили параллельно
+        return new BalanceChange(bankAccountRepository.saveAndFlush(bankAccount), true);
+    }
+
+    private BankAccount findAccount(String id) {
+        return bankAccountRepository.findById(id)
+                .orElseThrow(() -> new NoSuchElementException("Счёт " + id + " не найден"));
+    }
+
+    /**
+     * Применяет пакет проводок в одной транзакции.
+     * Все затронутые счета блокируются заранее в порядке id, проводки применяются в памяти по порядку,
+     * а изменения записываются при коммите пакетными UPDATE (hibernate.jdbc.batch_size).
+     * Некорректная проводка или нехватка средств отклоняет только эту проводку, а не весь пакет.
+     *
+     * @param postings список проводок
+     * @return результат по каждой проводке в том же порядке
+     */
+    public List<PostingResult> applyPostings(List<Posting> postings) {
+        return transactionTemplate.execute(status -> applyPostingsInTransaction(postings));
+    }
+
+    private List<PostingResult> applyPostingsInTransaction(List<Posting> postings) {
+        // TreeSet — id в отсортированном порядке, чтобы блокировки всегда брались в одной последовательности
+        TreeSet<String> ids = new TreeSet<>();
+        for (Posting posting : postings) {
+            if (posting.getAccountId() != null) {
+                ids.add(posting.getAccountId());
+            }
+            if (posting.getTargetAccountId() != null) {
+                ids.add(posting.getTargetAccountId());
+            }
+        }
+
+        List<String> sortedIds = new ArrayList<>(ids);
+        Map<String, BankAccount> accounts = new HashMap<>();
+        for (int from = 0; from < sortedIds.size(); from += LOCK_CHUNK_SIZE) {
+            List<String> chunk = sortedIds.subList(from, Math.min(from + LOCK_CHUNK_SIZE, sortedIds.size()));
+            for (BankAccount account : bankAccountRepository.findAllByIdForUpdate(chunk)) {
+                accounts.put(account.getId(), account);
+            }
+        }
+
+        List<PostingResult> results = new ArrayList<>(postings.size());
+        for (int index = 0; index < postings.size(); index++) {
+            results.add(applyPosting(index, postings.get(index), accounts));
+        }
+        log.info("Applied postings batch: {} entries, {} accounts", postings.size(), accounts.size());
+        return results;
+    }
+
+    private PostingResult applyPosting(int index, Posting posting, Map<String, BankAccount> accounts) {
+        if (posting.getType() == null || posting.getAmount() == null || posting.getAmount().signum() <= 0) {
+            return rejected(index, "Некорректный тип или сумма проводки");
+        }
+        BankAccount account = accounts.get(posting.getAccountId());
+        if (account == null) {
+            return rejected(index, "Счёт " + posting.getAccountId() + " не найден");
+        }
+        BigDecimal amount = posting.getAmount();
+
+        switch (posting.getType()) {
+            case DEPOSIT -> account.setBalance(account.getBalance().add(amount));
+            case WITHDRAW -> {
+                if (account.getBalance().compareTo(amount) < 0) {
+                    return rejected(index, "Недостаточно средств");
+                }
+                account.setBalance(account.getBalance().subtract(amount));
+            }
+            case TRANSFER -> {
+                BankAccount target = accounts.get(posting.getTargetAccountId());
+                if (target == null || target == account) {
+                    return rejected(index, "Некорректный счёт получателя " + posting.getTargetAccountId());
+                }
+                if (account.getBalance().compareTo(amount) < 0) {
+                    return rejected(index, "Недостаточно средств");
+                }
+                account.setBalance(account.getBalance().subtract(amount));
+                target.setBalance(target.getBalance().add(amount));
+            }
+        }
+        return new PostingResult(index, PostingResult.Status.APPLIED, null);
+    }
+
+    private static PostingResult rejected(int index, String message) {
+        return new PostingResult(index, PostingResult.Status.REJECTED, message);
+    }
+}
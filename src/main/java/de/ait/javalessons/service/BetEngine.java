@@ -0,0 +1,25 @@
+package de.ait.javalessons.service;
+
+/**
+ * Движок размещения ставок. Реализация выбирается свойством casino.engine:
+ * - sync (по умолчанию) — {@link BetPlacementService}, каждая ставка сразу пишется в базу;
+ * - in-memory — {@link InMemoryBetEngine}, балансы в памяти, ставки пишутся в базу пакетами в фоне.
+ */
+public interface BetEngine {
+
+    enum BetOutcome {
+        WIN,
+        LOSS,
+        INSUFFICIENT_FUNDS
+    }
+
+    /**
+     * Размещает ставку игрока.
+     *
+     * @param playerId id игрока
+     * @param amount   сумма ставки
+     * @return исход ставки
+     * @throws IllegalArgumentException если игрок не найден или сумма ставки не положительная
+     */
+    BetOutcome placeBet(Long playerId, int amount);
+}
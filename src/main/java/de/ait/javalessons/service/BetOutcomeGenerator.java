@@ -0,0 +1,14 @@
+package de.ait.javalessons.service;
+
+/**
+ * Генератор исхода ставки. Реализация выбирается свойством casino.rng:
+ * - thread-local (по умолчанию) — {@link ThreadLocalOutcomeGenerator}, свой генератор у каждого потока;
+ * - seeded — {@link SeededOutcomeGenerator}, воспроизводимая последовательность исходов для нагрузочных тестов и аудита.
+ */
+public interface BetOutcomeGenerator {
+
+    /**
+     * @return true, если ставка выиграла (вероятность 1/2)
+     */
+    boolean nextWin();
+}
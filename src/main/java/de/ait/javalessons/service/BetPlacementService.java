@@ -0,0 +1,74 @@
+package de.ait.javalessons.service;
+
+import de.ait.javalessons.model.Bet;
+import de.ait.javalessons.model.Player;
+import de.ait.javalessons.repository.BetRepository;
+import de.ait.javalessons.repository.PlayerRepository;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+/**
+ * Размещение ставок.
+ * Работа на одну ставку не зависит от количества ставок игрока: баланс меняется одним условным UPDATE,
+ * а ставка вставляется напрямую со ссылкой на игрока, без загрузки Player и коллекции Player.bets.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "casino.engine", havingValue = "sync", matchIfMissing = true)
+public class BetPlacementService implements BetEngine {
+
+    private final PlayerRepository playerRepository;
+
+    private final BetRepository betRepository;
+
+    private final EntityManager entityManager;
+
+    private final BetOutcomeGenerator outcomeGenerator;
+
+    public BetPlacementService(PlayerRepository playerRepository,
+                               BetRepository betRepository,
+                               EntityManager entityManager,
+                               BetOutcomeGenerator outcomeGenerator) {
+        this.playerRepository = playerRepository;
+        this.betRepository = betRepository;
+        this.entityManager = entityManager;
+        this.outcomeGenerator = outcomeGenerator;
+    }
+
+    /**
+     * Размещает ставку: разыгрывает исход, меняет баланс и сохраняет ставку в одной транзакции.
+     */
+    @Override
+    @Transactional
+    public BetOutcome placeBet(Long playerId, int amount) {
+        if (amount <= 0) {
+            throw new IllegalArgumentException("Сумма ставки должна быть положительной");
+        }
+
+        boolean win = outcomeGenerator.nextWin();
+        int winSize = win ? amount * 2 : 0;
+
+        if (playerRepository.settleBet(playerId, amount, winSize) == 0) {
+            // Отдельный запрос только на редком пути отказа — чтобы отличить «нет игрока» от «нет денег»
+            if (!playerRepository.existsById(playerId)) {
+                throw new IllegalArgumentException("Игрок не найден");
+            }
+            return BetOutcome.INSUFFICIENT_FUNDS;
+        }
+
+        Bet bet = new Bet();
+        bet.setAmount(amount);
+        bet.setWin(win);
+        bet.setTimeOfBet(LocalDateTime.now());
+        bet.setPlayer(entityManager.getReference(Player.class, playerId)); // Ссылка без SELECT игрока
+        betRepository.save(bet);
+
+        log.debug("Bet {} placed by player {}: {}", bet.getId(), playerId, win ? "win" : "loss");
+        return win ? BetOutcome.WIN : BetOutcome.LOSS;
+    }
+}
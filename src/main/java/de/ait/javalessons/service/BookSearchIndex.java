@@ -0,0 +1,738 @@
+package de.ait.javalessons.service;
+
+import de.ait.javalessons.model.Book;
+import de.ait.javalessons.model.EntityVersion;
+import de.ait.javalessons.repository.BookRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Полнотекстовый поиск книг по названию и автору: инвертированный индекс в памяти.
+ * Текст разбивается на слова (буквы и цифры), приводится к нижнему регистру, диакритика убирается
+ * (Márquez находится по marquez). Для каждого слова хранится отсортированный массив номеров книг.
+ *
+ * Запрос находит книги, в которых есть все слова запроса; последнее слово (от двух символов) может быть
+ * и началом слова — для подсказок при наборе. Ранжирование — по сумме весов совпадений:
+ * слово в названии важнее слова в авторе, точное совпадение важнее префикса; при равенстве — по названию, затем по id.
+ * Порядок не зависит от limit: меньший limit возвращает начало того же списка.
+ * Поиск не обращается к базе: отвечает по спискам книг нужных слов, без перебора каталога.
+ *
+ * Индекс строится при старте приложения и дальше меняется по одной книге: сохранение и удаление через JPA
+ * передаёт {@link BookSearchIndexListener}, а JPQL-обновление и пакетная загрузка вызывают {@link #put} сами.
+ * Повторное построение собирает новый индекс рядом со старым (на это время памяти нужно вдвое больше)
+ * и подменяет его целиком: поиск до подмены отвечает по старому индексу, а не по наполовину заполненному.
+ * Метрика: catalog.search.books — число книг в индексе.
+ */
+@Slf4j
+@Service
+public class BookSearchIndex {
+
+    public static final int MAX_LIMIT = 100;
+
+    // Веса совпадений слова запроса с книгой
+    private static final int EXACT_TITLE = 4;
+    private static final int EXACT_AUTHOR = 3;
+    private static final int PREFIX_TITLE = 2;
+    private static final int PREFIX_AUTHOR = 1;
+
+    // Изменения приходят после коммита за миллисекунды; минуты с запасом хватает, чтобы опоздавшие отсеялись
+    private static final long TOMBSTONE_TTL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    // Однобуквенный префикс подходит к большой части каталога — такое слово ищется только целиком
+    private static final int MIN_PREFIX_LENGTH = 2;
+
+    // Результат wordMatch: слово совпало целиком или только началом
+    private static final int WORD = 2;
+    private static final int WORD_PREFIX = 1;
+
+    // Проверка текста одной книги дороже, чем разбор одного номера из списка слова, примерно во столько раз
+    private static final int PREFIX_SCAN_COST = 16;
+
+    // Объединение списков через массив весов по всем номерам выгоднее сортировки, когда совпадений
+    // больше 1/DENSE_UNION_RATIO от числа книг
+    private static final int DENSE_UNION_RATIO = 32;
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+
+    private final BookRepository bookRepository;
+
+    private final EntityManager entityManager;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    // Поиск идёт параллельно, изменения — по одному
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Одно построение за раз; не synchronized — внутри чтение из базы, а виртуальный поток не должен закрепляться
+    private final Lock rebuildLock = new ReentrantLock();
+
+    // Изменения, пришедшие во время построения: повторяются на новом индексе перед подменой; null — построения нет
+    private List<Consumer<BookSearchIndex>> pending;
+
+    // Поля ниже заменяются все вместе при подмене индекса, поэтому не final; читаются и пишутся под lock
+
+    // Книги по внутренним номерам; null — номер свободен
+    private List<Entry> entries = new ArrayList<>();
+
+    private Map<String, Integer> numbers = new HashMap<>();
+
+    // Первые символы названия по номеру книги (см. titleKey): отбор равных по весу книг по названию
+    // сравнивает числа подряд в массиве и лишь при совпадении начала — сами строки
+    private long[] titleKeys = new long[16];
+
+    // Номера удалённых книг, занимаются заново, чтобы массивы не росли от удалений
+    private int[] freeNumbers = new int[16];
+
+    private int freeCount;
+
+    private NavigableMap<String, Postings> titleTerms = new TreeMap<>();
+
+    private NavigableMap<String, Postings> authorTerms = new TreeMap<>();
+
+    // Удалённые книги в порядке удаления. Изменение, закоммиченное до удаления, может прийти после него
+    // и не должно вернуть книгу; такие изменения возможны недолго, поэтому запись живёт TOMBSTONE_TTL_MILLIS
+    private LinkedHashMap<String, Tombstone> tombstones = new LinkedHashMap<>();
+
+    // Конструктор для Spring явно: второй, закрытый конструктор создаёт пустой индекс для rebuild
+    @Autowired
+    public BookSearchIndex(BookRepository bookRepository,
+                           EntityManager entityManager,
+                           PlatformTransactionManager transactionManager,
+                           MeterRegistry meterRegistry) {
+        this.bookRepository = bookRepository;
+        this.entityManager = entityManager;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        Gauge.builder("catalog.search.books", this, BookSearchIndex::size)
+                .description("Books in the in-memory search index")
+                .register(meterRegistry);
+    }
+
+    // Пустой индекс, который rebuild заполняет и подставляет вместо текущего
+    private BookSearchIndex() {
+        this.bookRepository = null;
+        this.entityManager = null;
+        this.readOnlyTransaction = null;
+    }
+
+    /**
+     * Строит индекс всеми книгами из базы и подменяет им текущий. Таблица читается курсором,
+     * сущности сразу отсоединяются, поэтому в памяти остаётся только сам индекс.
+     * Изменения, пришедшие во время чтения, применяются и к текущему индексу, и — перед подменой — к новому;
+     * проверка версии в {@link #put} не даёт строке из более старого снимка таблицы их перезаписать.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        rebuildLock.lock();
+        try {
+            long start = System.nanoTime();
+            BookSearchIndex fresh = new BookSearchIndex();
+            lock.writeLock().lock();
+            try {
+                pending = new ArrayList<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            boolean built = false;
+            try {
+                readOnlyTransaction.executeWithoutResult(status -> {
+                    try (Stream<Book> books = bookRepository.streamAll()) {
+                        books.forEach(book -> {
+                            fresh.put(book);
+                            entityManager.detach(book);
+                        });
+                    }
+                });
+                built = true;
+            } finally {
+                lock.writeLock().lock();
+                try {
+                    if (built) {
+                        // Удаления до начала построения новый индекс не видел — переносим их записи
+                        fresh.tombstones.putAll(tombstones);
+                        pending.forEach(event -> event.accept(fresh));
+                        swap(fresh);
+                    }
+                    pending = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+            log.info("Book search index built: {} books in {} ms",
+                    size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private void swap(BookSearchIndex fresh) {
+        entries = fresh.entries;
+        numbers = fresh.numbers;
+        titleKeys = fresh.titleKeys;
+        freeNumbers = fresh.freeNumbers;
+        freeCount = fresh.freeCount;
+        titleTerms = fresh.titleTerms;
+        authorTerms = fresh.authorTerms;
+        tombstones = fresh.tombstones;
+    }
+
+    /**
+     * Добавляет книгу в индекс или заменяет её прежнюю версию.
+     * Изменения приходят после коммита из разных потоков и могут опоздать: книга с версией меньше
+     * уже проиндексированной игнорируется. Версия null (книга ещё не сохранялась) считается нулевой.
+     * Недавно удалённую книгу возвращает только изменение новее удаления (см. {@link #remove}),
+     * поэтому у книги должно быть заполнено lastModified.
+     */
+    public void put(Book book) {
+        long version = book.getVersion() == null ? 0 : book.getVersion();
+        long lastModified = book.getLastModified() == null ? 0 : book.getLastModified().toEpochMilli();
+        Entry entry = new Entry(book.getId(), book.getTitle(), book.getAuthor(), book.getPublishYear(),
+                version, lastModified);
+        Set<String> titleTokens = tokens(entry.title());
+        Set<String> authorTokens = tokens(entry.author());
+        lock.writeLock().lock();
+        try {
+            store(entry, titleTokens, authorTokens);
+            if (pending != null) {
+                pending.add(fresh -> fresh.store(entry, titleTokens, authorTokens));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void store(Entry entry, Set<String> titleTokens, Set<String> authorTokens) {
+        Integer number = numbers.get(entry.id());
+        if (number != null) {
+            if (entries.get(number).version() > entry.version()) {
+                return;
+            }
+            unlink(number);
+        } else {
+            Tombstone tombstone = tombstones.get(entry.id());
+            if (tombstone != null) {
+                if (tombstone.covers(entry)) {
+                    return;
+                }
+                tombstones.remove(entry.id());
+            }
+            number = allocate();
+            numbers.put(entry.id(), number);
+        }
+        entries.set(number, entry);
+        titleKeys[number] = titleKey(entry.title());
+        link(titleTerms, titleTokens, number);
+        link(authorTerms, authorTokens, number);
+    }
+
+    /**
+     * Удаляет книгу из индекса; отсутствующий id игнорируется.
+     * Удаление запоминается на {@link #TOMBSTONE_TTL_MILLIS}: опоздавшее изменение с версией не больше удалённой
+     * и временем изменения не позже удаления отбрасывается. Книга, созданная заново, снова начинается с версии 0,
+     * но изменена позже удаления — её изменения принимаются. Изменение в ту же миллисекунду, что и удаление,
+     * считается опоздавшим.
+     *
+     * @param id      id книги
+     * @param version версия удалённой строки; null — как 0
+     */
+    public void remove(String id, Long version) {
+        Tombstone tombstone = new Tombstone(version == null ? 0 : version, EntityVersion.now().toEpochMilli());
+        lock.writeLock().lock();
+        try {
+            delete(id, tombstone);
+            if (pending != null) {
+                pending.add(fresh -> fresh.delete(id, tombstone));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void delete(String id, Tombstone tombstone) {
+        // Записи в порядке удаления: устаревшие — в начале
+        Iterator<Tombstone> oldest = tombstones.values().iterator();
+        while (oldest.hasNext() && oldest.next().removedAt() < tombstone.removedAt() - TOMBSTONE_TTL_MILLIS) {
+            oldest.remove();
+        }
+        tombstones.remove(id);
+        tombstones.put(id, tombstone);
+        Integer number = numbers.remove(id);
+        if (number == null) {
+            return;
+        }
+        unlink(number);
+        entries.set(number, null);
+        if (freeCount == freeNumbers.length) {
+            freeNumbers = Arrays.copyOf(freeNumbers, freeCount * 2);
+        }
+        freeNumbers[freeCount++] = number;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return numbers.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ищет книги, в которых есть все слова запроса (последнее — и как начало слова).
+     *
+     * @param query текст запроса
+     * @param limit сколько книг вернуть, от 1 до {@link #MAX_LIMIT}
+     * @return книги в порядке убывания релевантности; пустой список, если в запросе нет слов
+     */
+    public List<Book> search(String query, int limit) {
+        List<String> terms = new ArrayList<>(tokens(query));
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+        limit = Math.clamp(limit, 1, MAX_LIMIT);
+        String last = terms.getLast();
+        boolean prefix = last.length() >= MIN_PREFIX_LENGTH;
+        List<String> exactTerms = prefix ? terms.subList(0, terms.size() - 1) : terms;
+        lock.readLock().lock();
+        try {
+            // Сначала слова, которые ищутся только целиком, — от самого короткого списка книг
+            Matches candidates = null;
+            for (Matches matches : exactTerms.stream().map(term -> match(term, false))
+                    .sorted(Comparator.comparingInt(Matches::size)).toList()) {
+                candidates = candidates == null ? matches : candidates.intersect(matches);
+                if (candidates.size() == 0) {
+                    return List.of();
+                }
+            }
+            if (prefix) {
+                candidates = matchLast(candidates, last, limit);
+            }
+            return top(candidates, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Последнее слово — и целиком, и как начало слова; раскрытие префикса в списки книг — самая дорогая часть поиска
+    private Matches matchLast(Matches candidates, String term, int limit) {
+        if (candidates == null) {
+            // Совпадения с началом слова весят меньше целых слов: если целых хватает на limit, префикс не раскрываем
+            Matches exact = match(term, false);
+            return exact.size() >= limit ? exact : match(term, true);
+        }
+        // Остальные слова уже оставили мало книг — проверяем их текст, а не объединяем списки всех слов с этим началом
+        if ((long) candidates.size() * PREFIX_SCAN_COST < prefixHits(term)) {
+            return scanPrefix(candidates, term);
+        }
+        return candidates.intersect(match(term, true));
+    }
+
+    // Книги, подходящие к слову запроса, с весом лучшего совпадения
+    private Matches match(String term, boolean prefix) {
+        List<Source> sources = new ArrayList<>();
+        Source.addTo(sources, titleTerms.get(term), EXACT_TITLE);
+        Source.addTo(sources, authorTerms.get(term), EXACT_AUTHOR);
+        if (prefix) {
+            titleTerms.subMap(term, false, term + Character.MAX_VALUE, false).values()
+                    .forEach(postings -> Source.addTo(sources, postings, PREFIX_TITLE));
+            authorTerms.subMap(term, false, term + Character.MAX_VALUE, false).values()
+                    .forEach(postings -> Source.addTo(sources, postings, PREFIX_AUTHOR));
+        }
+        if (sources.size() == 1) {
+            return sources.getFirst().toMatches();
+        }
+        long total = sources.stream().mapToLong(source -> source.postings().size).sum();
+        return total * DENSE_UNION_RATIO >= entries.size() ? denseUnion(sources) : sortedUnion(sources, (int) total);
+    }
+
+    // Сколько номеров книг во всех списках слов, начинающихся с term
+    private long prefixHits(String term) {
+        String upperBound = term + Character.MAX_VALUE;
+        long hits = 0;
+        for (Postings postings : titleTerms.subMap(term, true, upperBound, false).values()) {
+            hits += postings.size;
+        }
+        for (Postings postings : authorTerms.subMap(term, true, upperBound, false).values()) {
+            hits += postings.size;
+        }
+        return hits;
+    }
+
+    private Matches scanPrefix(Matches candidates, String term) {
+        int[] numbers = new int[candidates.size()];
+        int[] scores = new int[candidates.size()];
+        int count = 0;
+        for (int i = 0; i < candidates.size(); i++) {
+            Entry entry = entries.get(candidates.numbers()[i]);
+            int weight = Math.max(
+                    weight(wordMatch(entry.title(), term), EXACT_TITLE, PREFIX_TITLE),
+                    weight(wordMatch(entry.author(), term), EXACT_AUTHOR, PREFIX_AUTHOR));
+            if (weight > 0) {
+                numbers[count] = candidates.numbers()[i];
+                scores[count++] = candidates.scores()[i] + weight;
+            }
+        }
+        return new Matches(numbers, scores, count);
+    }
+
+    private static int weight(int wordMatch, int exact, int prefix) {
+        return wordMatch == WORD ? exact : wordMatch == WORD_PREFIX ? prefix : 0;
+    }
+
+    /**
+     * Есть ли в тексте слово term ({@link #WORD}) или слово, начинающееся с term ({@link #WORD_PREFIX}).
+     * Сравнивает на месте, без разбиения на слова; текст не в ASCII сначала нормализуется, как при индексации.
+     */
+    static int wordMatch(String text, String term) {
+        if (text == null) {
+            return 0;
+        }
+        if (!isAscii(text)) {
+            text = normalize(text);
+        }
+        int best = 0;
+        for (int i = 0, length = text.length(); i < length; ) {
+            while (i < length && !Character.isLetterOrDigit(text.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < length && Character.isLetterOrDigit(text.charAt(i))) {
+                i++;
+            }
+            if (i - start >= term.length() && text.regionMatches(true, start, term, 0, term.length())) {
+                if (i - start == term.length()) {
+                    return WORD;
+                }
+                best = WORD_PREFIX;
+            }
+        }
+        return best;
+    }
+
+    // Много совпадений: вес по номеру книги в массиве, затем один проход по нему — без сортировки
+    private Matches denseUnion(List<Source> sources) {
+        byte[] weights = new byte[entries.size()];
+        int count = 0;
+        for (Source source : sources) {
+            int[] numbers = source.postings().numbers;
+            for (int i = 0; i < source.postings().size; i++) {
+                int number = numbers[i];
+                if (weights[number] == 0) {
+                    count++;
+                }
+                if (weights[number] < source.weight()) {
+                    weights[number] = (byte) source.weight();
+                }
+            }
+        }
+        int[] numbers = new int[count];
+        int[] scores = new int[count];
+        for (int number = 0, i = 0; i < count; number++) {
+            if (weights[number] > 0) {
+                numbers[i] = number;
+                scores[i++] = weights[number];
+            }
+        }
+        return new Matches(numbers, scores, count);
+    }
+
+    // Мало совпадений: номер книги и вес упакованы в long (номер << 3 | вес) и отсортированы;
+    // для каждой книги остаётся наибольший вес
+    private static Matches sortedUnion(List<Source> sources, int total) {
+        long[] hits = new long[total];
+        int size = 0;
+        for (Source source : sources) {
+            int[] numbers = source.postings().numbers;
+            for (int i = 0; i < source.postings().size; i++) {
+                hits[size++] = (long) numbers[i] << 3 | source.weight();
+            }
+        }
+        Arrays.sort(hits);
+        int[] numbers = new int[size];
+        int[] scores = new int[size];
+        int count = 0;
+        for (long hit : hits) {
+            int number = (int) (hit >>> 3);
+            int weight = (int) (hit & 7);
+            if (count > 0 && numbers[count - 1] == number) {
+                scores[count - 1] = weight; // Внутри номера отсортировано по весу — последний наибольший
+            } else {
+                numbers[count] = number;
+                scores[count++] = weight;
+            }
+        }
+        return new Matches(numbers, scores, count);
+    }
+
+    // limit лучших без сортировки всех совпадений: веса — небольшие целые, поэтому порог находится подсчётом.
+    // Книги с весом выше порога берутся все, из книг с пороговым весом — первые по названию (куча из quota штук)
+    private List<Book> top(Matches matches, int limit) {
+        int maxScore = 0;
+        for (int i = 0; i < matches.size(); i++) {
+            maxScore = Math.max(maxScore, matches.scores()[i]);
+        }
+        int[] counts = new int[maxScore + 1];
+        for (int i = 0; i < matches.size(); i++) {
+            counts[matches.scores()[i]]++;
+        }
+        int threshold = maxScore;
+        int above = 0;
+        while (threshold > 1 && above + counts[threshold] < limit) {
+            above += counts[threshold--];
+        }
+        int quota = limit - above;
+        List<Hit> hits = new ArrayList<>(limit);
+        // Наверху кучи — последняя по названию из отобранных; её вытесняет книга, стоящая раньше
+        Comparator<Integer> byTitle = this::compareTitles;
+        PriorityQueue<Integer> ties = new PriorityQueue<>(quota, byTitle.reversed());
+        for (int i = 0; i < matches.size(); i++) {
+            int score = matches.scores()[i];
+            int number = matches.numbers()[i];
+            if (score > threshold) {
+                hits.add(new Hit(entries.get(number), score));
+            } else if (score == threshold) {
+                if (ties.size() < quota) {
+                    ties.add(number);
+                } else if (compareTitles(number, ties.peek()) < 0) {
+                    ties.poll();
+                    ties.add(number);
+                }
+            }
+        }
+        for (int number : ties) {
+            hits.add(new Hit(entries.get(number), threshold));
+        }
+        hits.sort(Hit.BY_RELEVANCE);
+        return hits.stream()
+                .map(hit -> new Book(hit.entry().id(), hit.entry().title(), hit.entry().author(), hit.entry().publishYear()))
+                .toList();
+    }
+
+    private int compareTitles(int first, int second) {
+        int byKey = Long.compareUnsigned(titleKeys[first], titleKeys[second]);
+        return byKey != 0 ? byKey : Entry.BY_TITLE.compare(entries.get(first), entries.get(second));
+    }
+
+    // Первые четыре символа названия по 16 бит: беззнаковое сравнение ключей совпадает с String.compareTo,
+    // пока ключи различны. Книги без названия — в конце, как в Entry.BY_TITLE
+    static long titleKey(String title) {
+        if (title == null) {
+            return -1L;
+        }
+        long key = 0;
+        for (int i = 0; i < 4; i++) {
+            key = key << 16 | (i < title.length() ? title.charAt(i) : 0);
+        }
+        return key;
+    }
+
+    private int allocate() {
+        if (freeCount > 0) {
+            return freeNumbers[--freeCount];
+        }
+        entries.add(null);
+        if (entries.size() > titleKeys.length) {
+            titleKeys = Arrays.copyOf(titleKeys, titleKeys.length * 2);
+        }
+        return entries.size() - 1;
+    }
+
+    private static void link(NavigableMap<String, Postings> terms, Set<String> tokens, int number) {
+        for (String token : tokens) {
+            terms.computeIfAbsent(token, key -> new Postings()).add(number);
+        }
+    }
+
+    // Убирает номер книги из списков слов её текущей версии
+    private void unlink(int number) {
+        Entry entry = entries.get(number);
+        unlink(titleTerms, tokens(entry.title()), number);
+        unlink(authorTerms, tokens(entry.author()), number);
+    }
+
+    private static void unlink(NavigableMap<String, Postings> terms, Set<String> tokens, int number) {
+        for (String token : tokens) {
+            Postings postings = terms.get(token);
+            if (postings != null && postings.remove(number) && postings.size == 0) {
+                terms.remove(token);
+            }
+        }
+    }
+
+    /**
+     * Слова текста в нижнем регистре без диакритики, без повторов, в порядке появления.
+     */
+    static Set<String> tokens(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (text == null || text.isBlank()) {
+            return tokens;
+        }
+        String normalized = normalize(text);
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean wordChar = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(normalized.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    // Нижний регистр без диакритики: "García" -> "garcia"
+    private static String normalize(String text) {
+        return DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD))
+                .replaceAll("")
+                .toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean isAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) > 127) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Книга в индексе: только поля, которые возвращает поиск.
+     */
+    private record Entry(String id, String title, String author, int publishYear, long version, long lastModified) {
+
+        static final Comparator<Entry> BY_TITLE = Comparator.comparing(Entry::title, Comparator.nullsLast(String::compareTo))
+                .thenComparing(Entry::id);
+    }
+
+    // Удалённая книга: её последняя версия и момент удаления (мс)
+    private record Tombstone(long version, long removedAt) {
+
+        // Изменение сделано до удаления: версия не новее удалённой и время не позже удаления
+        boolean covers(Entry entry) {
+            return entry.version() <= version && entry.lastModified() <= removedAt;
+        }
+    }
+
+    private record Hit(Entry entry, int score) {
+
+        // Сначала больший вес, затем по названию и id
+        static final Comparator<Hit> BY_RELEVANCE = Comparator.comparingInt(Hit::score).reversed()
+                .thenComparing(Hit::entry, Entry.BY_TITLE);
+    }
+
+    /**
+     * Отсортированный по возрастанию список номеров книг, в которых есть слово.
+     * Массив растёт в полтора раза: у большинства слов по одной-две книги.
+     */
+    private static final class Postings {
+
+        private int[] numbers = new int[1];
+
+        private int size;
+
+        void add(int number) {
+            int index;
+            if (size == 0 || numbers[size - 1] < number) {
+                index = size; // Обычный случай: новая книга получает номер больше прежних
+            } else {
+                index = Arrays.binarySearch(numbers, 0, size, number);
+                if (index >= 0) {
+                    return;
+                }
+                index = -index - 1;
+            }
+            if (size == numbers.length) {
+                numbers = Arrays.copyOf(numbers, size + (size >> 1) + 1);
+            }
+            System.arraycopy(numbers, index, numbers, index + 1, size - index);
+            numbers[index] = number;
+            size++;
+        }
+
+        boolean remove(int number) {
+            int index = Arrays.binarySearch(numbers, 0, size, number);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(numbers, index + 1, numbers, index, size - index - 1);
+            size--;
+            return true;
+        }
+    }
+
+    /**
+     * Номера книг и веса совпадений, по возрастанию номеров.
+     */
+    private record Matches(int[] numbers, int[] scores, int size) {
+
+        // Книги, которые есть в обоих списках; веса складываются
+        Matches intersect(Matches other) {
+            int[] resultNumbers = new int[Math.min(size, other.size)];
+            int[] resultScores = new int[resultNumbers.length];
+            int count = 0;
+            for (int i = 0, j = 0; i < size && j < other.size; ) {
+                if (numbers[i] < other.numbers[j]) {
+                    i++;
+                } else if (numbers[i] > other.numbers[j]) {
+                    j++;
+                } else {
+                    resultNumbers[count] = numbers[i];
+                    resultScores[count++] = scores[i++] + other.scores[j++];
+                }
+            }
+            return new Matches(resultNumbers, resultScores, count);
+        }
+    }
+
+    /**
+     * Список книг слова и вес совпадения с ним.
+     */
+    private record Source(Postings postings, int weight) {
+
+        static void addTo(List<Source> sources, Postings postings, int weight) {
+            if (postings != null && postings.size > 0) {
+                sources.add(new Source(postings, weight));
+            }
+        }
+
+        Matches toMatches() {
+            int[] scores = new int[postings.size];
+            Arrays.fill(scores, weight);
+            return new Matches(Arrays.copyOf(postings.numbers, postings.size), scores, postings.size);
+        }
+    }
+}
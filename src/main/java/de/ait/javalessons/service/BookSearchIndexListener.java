@@ -0,0 +1,62 @@
+package de.ait.javalessons.service;
+
+import de.ait.javalessons.model.Book;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * JPA-слушатель сущности Book: переносит сохранение и удаление книги в {@link BookSearchIndex}.
+ * Индекс меняется после коммита, чтобы поиск не находил книги из откатившейся транзакции.
+ * Массовые JPQL-обновления слушатели не вызывают — после них индекс нужно обновлять вручную.
+ */
+@Component
+public class BookSearchIndexListener {
+
+    // ObjectProvider — чтобы не создавать цикл EntityManagerFactory -> слушатель -> репозиторий
+    private final ObjectProvider<BookSearchIndex> bookSearchIndex;
+
+    public BookSearchIndexListener(ObjectProvider<BookSearchIndex> bookSearchIndex) {
+        this.bookSearchIndex = bookSearchIndex;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void put(Book book) {
+        BookSearchIndex index = bookSearchIndex.getIfAvailable();
+        if (index != null) {
+            // Копия: сущность может измениться до коммита
+            Book copy = new Book(book.getId(), book.getTitle(), book.getAuthor(), book.getPublishYear());
+            copy.setVersion(book.getVersion());
+            copy.setLastModified(book.getLastModified());
+            afterCommit(() -> index.put(copy));
+        }
+    }
+
+    @PostRemove
+    public void remove(Book book) {
+        BookSearchIndex index = bookSearchIndex.getIfAvailable();
+        if (index != null) {
+            String id = book.getId();
+            Long version = book.getVersion();
+            afterCommit(() -> index.remove(id, version));
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
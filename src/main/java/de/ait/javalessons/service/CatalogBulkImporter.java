@@ -0,0 +1,252 @@
+package de.ait.javalessons.service;
+
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.exc.StreamReadException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.ait.javalessons.model.Book;
+import de.ait.javalessons.model.BulkImportResult;
+import de.ait.javalessons.model.Car;
+import de.ait.javalessons.model.EntityVersion;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Массовая загрузка книг и машин из JSON-массива или NDJSON.
+ * Тело запроса разбирается потоково по одному объекту и обрабатывается порциями по
+ * catalog.bulk.chunk-size строк, поэтому в памяти одновременно находится только одна порция.
+ * Для каждой порции:
+ * - строки проверяются валидатором, повторы id внутри загрузки отклоняются;
+ * - одним SELECT ... WHERE id IN (...) отсеиваются уже существующие id (вместо SELECT перед каждой
+ *   вставкой, который делает merge для сущности с заданным id);
+ * - оставшиеся строки добавляются пакетным INSERT через JDBC в отдельной транзакции.
+ * Порции, добавленные до ошибки, остаются в базе. Отклонённые строки перечисляются в итоге,
+ * синтаксическая ошибка JSON — отдельно от них (BulkImportResult.parseError).
+ * Новые id не могут лежать в {@link CatalogCache} (отсутствующие записи не кэшируются), поэтому кэш не сбрасывается.
+ * Добавленные книги передаются в {@link BookSearchIndex}: JDBC-вставка обходит слушатели сущности.
+ */
+@Slf4j
+@Service
+public class CatalogBulkImporter {
+
+    private static final Table<Book> BOOKS = new Table<>(
+            "insert into book (id, title, author, publish_year, version, last_modified) values (?, ?, ?, ?, 0, ?)",
+            "select id from book where id in (:ids)",
+            Book::getId,
+            (statement, book) -> {
+                statement.setString(1, book.getId());
+                statement.setString(2, book.getTitle());
+                statement.setString(3, book.getAuthor());
+                statement.setInt(4, book.getPublishYear());
+            },
+            5);
+
+    private static final Table<Car> CARS = new Table<>(
+            "insert into car (id, name, version, last_modified) values (?, ?, 0, ?)",
+            "select id from car where id in (:ids)",
+            Car::getId,
+            (statement, car) -> {
+                statement.setString(1, car.getId());
+                statement.setString(2, car.getName());
+            },
+            3);
+
+    private final ObjectMapper objectMapper;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Validator validator;
+
+    private final BookSearchIndex bookSearchIndex;
+
+    private final int chunkSize;
+
+    public CatalogBulkImporter(ObjectMapper objectMapper,
+                               JdbcTemplate jdbcTemplate,
+                               PlatformTransactionManager transactionManager,
+                               Validator validator,
+                               BookSearchIndex bookSearchIndex,
+                               @Value("${catalog.bulk.chunk-size:500}") int chunkSize) {
+        this.objectMapper = objectMapper;
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.validator = validator;
+        this.bookSearchIndex = bookSearchIndex;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Добавляет книги из JSON-массива или NDJSON.
+     *
+     * @param body тело запроса; читается до конца или до синтаксической ошибки
+     * @return сколько строк прочитано, добавлено и отклонено (с причинами)
+     */
+    public BulkImportResult importBooks(InputStream body) throws IOException {
+        return importRows(body, Book.class, BOOKS, (book, lastModified) -> {
+            book.setLastModified(lastModified);
+            bookSearchIndex.put(book);
+        });
+    }
+
+    /**
+     * Добавляет машины из JSON-массива или NDJSON.
+     *
+     * @param body тело запроса; читается до конца или до синтаксической ошибки
+     * @return сколько строк прочитано, добавлено и отклонено (с причинами)
+     */
+    public BulkImportResult importCars(InputStream body) throws IOException {
+        return importRows(body, Car.class, CARS, (car, lastModified) -> { }); // Поиска по машинам нет
+    }
+
+    // inserted вызывается для каждой добавленной строки и записанного в неё last_modified после коммита её порции
+    private <T> BulkImportResult importRows(InputStream body, Class<T> type, Table<T> table,
+                                            BiConsumer<T, Instant> inserted) throws IOException {
+        BulkImportResult result = new BulkImportResult();
+        List<Row<T>> chunk = new ArrayList<>(chunkSize);
+        // readValues читает и объекты внутри корневого массива, и объекты подряд (NDJSON)
+        try (MappingIterator<T> rows = objectMapper.readerFor(type).readValues(body)) {
+            while (true) {
+                T value;
+                try {
+                    if (!rows.hasNextValue()) {
+                        break;
+                    }
+                    value = rows.nextValue();
+                } catch (StreamReadException exception) {
+                    // Синтаксическая ошибка: где начинается следующий объект, неизвестно — дальше не читаем.
+                    // Объект на месте ошибки не прочитан, поэтому строкой он не считается
+                    JsonLocation location = exception.getLocation();
+                    result.setParseError("Malformed JSON"
+                            + (location == null ? "" : " at line " + location.getLineNr() + ", column " + location.getColumnNr())
+                            + ": " + exception.getOriginalMessage());
+                    break;
+                } catch (JsonProcessingException exception) {
+                    // Объект синтаксически цел, но не подходит к типу (например, строка вместо числа) — пропускаем его
+                    result.setReceived(result.getReceived() + 1);
+                    result.addError(result.getReceived(), null, "Invalid row: " + exception.getOriginalMessage());
+                    continue;
+                }
+                result.setReceived(result.getReceived() + 1);
+                chunk.add(new Row<>(result.getReceived(), value));
+                if (chunk.size() == chunkSize) {
+                    insertChunk(chunk, table, inserted, result);
+                    chunk.clear();
+                }
+            }
+        }
+        insertChunk(chunk, table, inserted, result);
+        log.info("Bulk import into {}: {} received, {} inserted, {} failed",
+                type.getSimpleName(), result.getReceived(), result.getInserted(), result.getFailed());
+        return result;
+    }
+
+    private <T> void insertChunk(List<Row<T>> chunk, Table<T> table, BiConsumer<T, Instant> inserted,
+                                 BulkImportResult result) {
+        Map<String, Row<T>> valid = new LinkedHashMap<>();
+        for (Row<T> row : chunk) {
+            String id = table.id().apply(row.value());
+            Set<ConstraintViolation<T>> violations = validator.validate(row.value());
+            if (!violations.isEmpty()) {
+                result.addError(row.number(), id, violations.stream()
+                        .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                        .sorted()
+                        .collect(Collectors.joining("; ")));
+            } else if (valid.putIfAbsent(id, row) != null) {
+                result.addError(row.number(), id, "Duplicate id in request");
+            }
+        }
+        if (valid.isEmpty()) {
+            return;
+        }
+        OffsetDateTime lastModified = OffsetDateTime.ofInstant(EntityVersion.now(), ZoneOffset.UTC);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                List<String> existing = namedParameterJdbcTemplate.queryForList(
+                        table.existingIdsSql(), Map.of("ids", valid.keySet()), String.class);
+                for (String id : existing) {
+                    result.addError(valid.remove(id).number(), id, "Already exists");
+                }
+                if (!valid.isEmpty()) {
+                    jdbcTemplate.batchUpdate(table.insertSql(), valid.values(), valid.size(),
+                            (statement, row) -> table.bind(statement, row.value(), lastModified));
+                }
+            });
+            result.setInserted(result.getInserted() + valid.size());
+            valid.values().forEach(row -> inserted.accept(row.value(), lastModified.toInstant()));
+        } catch (DataIntegrityViolationException exception) {
+            // Пакет откатан (например, параллельная загрузка успела добавить тот же id) —
+            // добавляем строки порции по одной, чтобы отклонить только конфликтующие
+            log.debug("Batch insert failed, retrying row by row: {}", exception.getMessage());
+            for (Row<T> row : valid.values()) {
+                insertRow(row, table, lastModified, inserted, result);
+            }
+        }
+    }
+
+    private <T> void insertRow(Row<T> row, Table<T> table, OffsetDateTime lastModified,
+                               BiConsumer<T, Instant> inserted, BulkImportResult result) {
+        String id = table.id().apply(row.value());
+        try {
+            jdbcTemplate.update(table.insertSql(), statement -> table.bind(statement, row.value(), lastModified));
+            result.setInserted(result.getInserted() + 1);
+            inserted.accept(row.value(), lastModified.toInstant());
+        } catch (DuplicateKeyException exception) {
+            result.addError(row.number(), id, "Already exists");
+        } catch (DataIntegrityViolationException exception) {
+            result.addError(row.number(), id, "Rejected by database: " + exception.getMostSpecificCause().getMessage());
+        }
+    }
+
+    /**
+     * Строка загрузки и её номер во входных данных (с 1).
+     */
+    private record Row<T>(long number, T value) {
+    }
+
+    /**
+     * SQL и привязка параметров для таблицы; lastModifiedIndex — номер параметра last_modified.
+     */
+    private record Table<T>(String insertSql,
+                            String existingIdsSql,
+                            Function<T, String> id,
+                            ParameterizedPreparedStatementSetter<T> columns,
+                            int lastModifiedIndex) {
+
+        void bind(PreparedStatement statement, T value, OffsetDateTime lastModified) throws SQLException {
+            columns.setValues(statement, value);
+            statement.setObject(lastModifiedIndex, lastModified);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package de.ait.javalessons.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import de.ait.javalessons.model.Book;
+import de.ait.javalessons.model.Car;
+import de.ait.javalessons.model.EntityVersion;
+import de.ait.javalessons.repository.BookRepository;
+import de.ait.javalessons.repository.CarRepository;
+import de.ait.javalessons.utils.CacheInvalidations;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Кэш чтения книг и машин по id перед {@link BookRepository} и {@link CarRepository}.
+ * Каталог читают намного чаще, чем меняют, поэтому повторное чтение того же id не выполняет SQL.
+ * Записи ограничены по количеству и времени жизни и сбрасываются явно при сохранении или удалении
+ * сущности (см. {@link CatalogCacheListener}).
+ * Чтение, начатое до сброса, своё (возможно, уже старое) значение в кэш не кладёт — см. {@link CacheInvalidations};
+ * без этого повторный сброс после коммита не помогал бы против чтения, завершившегося позже него.
+ * Метрики: cache.gets{result=hit|miss}, cache.size, cache.evictions с тегом cache=books или cache=cars.
+ */
+@Service
+public class CatalogCache {
+
+    private final BookRepository bookRepository;
+
+    private final CarRepository carRepository;
+
+    private final Cache<String, Book> books;
+
+    private final Cache<String, Car> cars;
+
+    private final CacheInvalidations bookInvalidations = new CacheInvalidations();
+
+    private final CacheInvalidations carInvalidations = new CacheInvalidations();
+
+    public CatalogCache(BookRepository bookRepository,
+                        CarRepository carRepository,
+                        MeterRegistry meterRegistry,
+                        @Value("${catalog.cache.max-size:10000}") long maxSize,
+                        @Value("${catalog.cache.ttl:10m}") Duration ttl) {
+        this.bookRepository = bookRepository;
+        this.carRepository = carRepository;
+        this.books = cache(maxSize, ttl, meterRegistry, "books");
+        this.cars = cache(maxSize, ttl, meterRegistry, "cars");
+    }
+
+    /**
+     * Возвращает книгу из кэша или загружает её из базы. Отсутствующие книги не кэшируются.
+     *
+     * @param id идентификатор книги
+     * @return книга или пустой Optional
+     */
+    public Optional<Book> findBook(String id) {
+        return find(books, bookInvalidations, id, bookRepository::findById);
+    }
+
+    /**
+     * Возвращает машину из кэша или загружает её из базы. Отсутствующие машины не кэшируются.
+     *
+     * @param id идентификатор машины
+     * @return машина или пустой Optional
+     */
+    public Optional<Car> findCar(String id) {
+        return find(cars, carInvalidations, id, carRepository::findById);
+    }
+
+    /**
+     * Версия книги для условного GET: из кэша, если книга там есть, иначе запросом одной версии
+     * без загрузки строки. Статистику попаданий не меняет.
+     *
+     * @param id идентификатор книги
+     * @return версия или пустой Optional, если книги нет
+     */
+    public Optional<EntityVersion> findBookVersion(String id) {
+        return findVersion(books, id, Book::getVersion, Book::getLastModified, bookRepository::findVersionById);
+    }
+
+    /**
+     * Версия машины для условного GET: из кэша, если машина там есть, иначе запросом одной версии
+     * без загрузки строки. Статистику попаданий не меняет.
+     *
+     * @param id идентификатор машины
+     * @return версия или пустой Optional, если машины нет
+     */
+    public Optional<EntityVersion> findCarVersion(String id) {
+        return findVersion(cars, id, Car::getVersion, Car::getLastModified, carRepository::findVersionById);
+    }
+
+    public void evictBook(String id) {
+        bookInvalidations.invalidate(books, id);
+    }
+
+    public void evictCar(String id) {
+        carInvalidations.invalidate(cars, id);
+    }
+
+    // Загрузка вне cache.get(key, loader): загрузчик Caffeine выполняется внутри synchronized-блока
+    // ConcurrentHashMap и закреплял бы виртуальный поток на время запроса к базе
+    private static <T> Optional<T> find(Cache<String, T> cache, CacheInvalidations invalidations, String id,
+                                        Function<String, Optional<T>> loader) {
+        T cached = cache.getIfPresent(id);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        long generation = invalidations.generation(id);
+        Optional<T> loaded = loader.apply(id);
+        loaded.ifPresent(value -> invalidations.put(cache, id, value, generation));
+        return loaded;
+    }
+
+    private static <T> Optional<EntityVersion> findVersion(Cache<String, T> cache, String id,
+                                                           Function<T, Long> version,
+                                                           Function<T, Instant> lastModified,
+                                                           Function<String, Optional<EntityVersion>> loader) {
+        T cached = cache.policy().getIfPresentQuietly(id);
+        if (cached != null) {
+            return Optional.of(new EntityVersion(version.apply(cached), lastModified.apply(cached)));
+        }
+        return loader.apply(id);
+    }
+
+    private static <T> Cache<String, T> cache(long maxSize, Duration ttl, MeterRegistry meterRegistry, String name) {
+        Cache<String, T> cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl) // Предел устаревания, если сброс всё же пропущен (массовые JPQL-обновления)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, name);
+        return cache;
+    }
+}
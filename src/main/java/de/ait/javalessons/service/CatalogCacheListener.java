@@ -0,0 +1,53 @@
+package de.ait.javalessons.service;
+
+import de.ait.javalessons.model.Book;
+import de.ait.javalessons.model.Car;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * JPA-слушатель сущностей Book и Car: сбрасывает запись в {@link CatalogCache}
+ * после сохранения или удаления.
+ * Слушатель срабатывает при flush, до фиксации транзакции: параллельное чтение в этот момент ещё видит
+ * старую строку и может вернуть её в кэш. Поэтому запись сбрасывается ещё раз после коммита.
+ * Массовые JPQL-обновления слушатели не вызывают — после них кэш нужно сбрасывать вручную.
+ */
+@Component
+public class CatalogCacheListener {
+
+    // ObjectProvider — чтобы не создавать цикл EntityManagerFactory -> слушатель -> репозиторий
+    private final ObjectProvider<CatalogCache> catalogCache;
+
+    public CatalogCacheListener(ObjectProvider<CatalogCache> catalogCache) {
+        this.catalogCache = catalogCache;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void evict(Object entity) {
+        CatalogCache cache = catalogCache.getIfAvailable();
+        if (cache == null) {
+            return;
+        }
+        Runnable evict = switch (entity) {
+            case Book book -> () -> cache.evictBook(book.getId());
+            case Car car -> () -> cache.evictCar(car.getId());
+            default -> throw new IllegalArgumentException("Unexpected entity: " + entity);
+        };
+        evict.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict.run();
+                }
+            });
+        }
+    }
+}
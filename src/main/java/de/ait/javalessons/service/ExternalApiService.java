@@ -1,48 +1,241 @@
 package de.ait.javalessons.service;
 
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import de.ait.javalessons.properties.ExternalApiProperties;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
 /**
  * Сервис для обращения к внешнему API.
  * Использует RestTemplate и параметры, заданные в application.yml или application.properties.
+ * RestTemplate работает через пул соединений с таймаутами (см. AppConfig.externalApiHttpClient).
+ *
+ * Ответы кэшируются (Caffeine):
+ * - моложе external.api.cache-ttl — отдаются из кэша без запроса к API;
+ * - старше, но не старше cache-ttl + cache-stale-ttl — сразу отдаётся старое значение,
+ *   а обновление выполняется в фоне (stale-while-revalidate);
+ * - одновременные промахи по одному URL ждут один общий запрос к API (single-flight).
+ *
+ * Вызовы к API защищены изоляцией (bulkhead) и предохранителем (circuit breaker):
+ * - ждать ответа API (нет значения в кэше или кэш выключен) одновременно могут не больше
+ *   external.api.bulkhead-max-concurrent-calls потоков, остальные не ждут, а сразу получают fallback;
+ *   ответы из кэша через bulkhead не проходят;
+ * - когда среди последних вызовов слишком много ошибок или медленных ответов, цепь размыкается,
+ *   и в течение circuit-open-duration запросы к API не выполняются вовсе;
+ * - если фоновое обновление кэша не удалось, остаётся прежнее значение (stale-if-error).
+ * Вместо ошибки вызывающий получает external.api.fallback.
+ *
+ * Метрики: cache.gets{cache=external.api,result=hit|miss}, время запросов к API — external.api.upstream,
+ * ответы fallback — external.api.fallbacks{reason=bulkhead_full|unavailable}, переходы предохранителя —
+ * external.api.circuit.transitions{from,to}, состояние предохранителя и bulkhead —
+ * resilience4j.circuitbreaker.* и resilience4j.bulkhead.* с тегом name=external.api.
  */
+@Slf4j
 @Service
 public class ExternalApiService {
 
+    private static final String NAME = "external.api";
+
     // Объект RestTemplate — основной инструмент для HTTP-запросов
     private final RestTemplate restTemplate;
 
     // Класс, содержащий свойства внешнего API (URL, таймаут и пр.)
     private final ExternalApiProperties externalApiProperties;
 
+    // Кэш ответов по URL; null — кэширование выключено (cache-ttl=0)
+    private final AsyncLoadingCache<String, String> cache;
+
+    // Потоки загрузок кэша; закрывается вместе с контекстом, чтобы загрузки не переживали остановку
+    private final ExecutorService loadExecutor;
+
+    private final CircuitBreaker circuitBreaker;
+
+    private final Bulkhead bulkhead;
+
+    private final Timer upstreamTimer;
+
+    private final Counter bulkheadFullFallbacks;
+
+    private final Counter unavailableFallbacks;
+
     /**
      * Конструктор с внедрением зависимостей.
      *
      * @param restTemplate            бин RestTemplate для выполнения HTTP-запросов
      * @param externalApiProperties   бин, содержащий настройки внешнего API
+     * @param meterRegistry           реестр метрик
      */
-    public ExternalApiService(RestTemplate restTemplate, ExternalApiProperties externalApiProperties) {
+    public ExternalApiService(RestTemplate restTemplate,
+                              ExternalApiProperties externalApiProperties,
+                              MeterRegistry meterRegistry) {
         this.restTemplate = restTemplate;
         this.externalApiProperties = externalApiProperties;
+        this.upstreamTimer = Timer.builder("external.api.upstream")
+                .description("External API call latency, including background refreshes")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.bulkheadFullFallbacks = fallbackCounter("bulkhead_full", meterRegistry);
+        this.unavailableFallbacks = fallbackCounter("unavailable", meterRegistry);
+
+        CircuitBreakerRegistry circuitBreakerRegistry = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .slidingWindowSize(externalApiProperties.getCircuitWindowSize())
+                .minimumNumberOfCalls(externalApiProperties.getCircuitMinimumCalls())
+                .failureRateThreshold(externalApiProperties.getCircuitFailureRateThreshold())
+                .slowCallRateThreshold(externalApiProperties.getCircuitSlowCallRateThreshold())
+                .slowCallDurationThreshold(externalApiProperties.getCircuitSlowCallDuration())
+                .waitDurationInOpenState(externalApiProperties.getCircuitOpenDuration())
+                .permittedNumberOfCallsInHalfOpenState(externalApiProperties.getCircuitHalfOpenCalls())
+                .ignoreExceptions(HttpClientErrorException.class) // 4xx — ошибка запроса, а не отказ API
+                .build());
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker(NAME);
+        circuitBreaker.getEventPublisher().onStateTransition(event -> {
+            CircuitBreaker.State from = event.getStateTransition().getFromState();
+            CircuitBreaker.State to = event.getStateTransition().getToState();
+            log.warn("External API circuit breaker: {} -> {}", from, to);
+            meterRegistry.counter("external.api.circuit.transitions",
+                    "from", from.name().toLowerCase(Locale.ROOT), "to", to.name().toLowerCase(Locale.ROOT))
+                    .increment();
+        });
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(circuitBreakerRegistry).bindTo(meterRegistry);
+
+        BulkheadRegistry bulkheadRegistry = BulkheadRegistry.of(BulkheadConfig.custom()
+                .maxConcurrentCalls(externalApiProperties.getBulkheadMaxConcurrentCalls())
+                .maxWaitDuration(Duration.ZERO) // Не ждём свободного места: ожидание и есть то, от чего изолируемся
+                .build());
+        this.bulkhead = bulkheadRegistry.bulkhead(NAME);
+        TaggedBulkheadMetrics.ofBulkheadRegistry(bulkheadRegistry).bindTo(meterRegistry);
+
+        Duration ttl = externalApiProperties.getCacheTtl();
+        if (ttl.isZero()) {
+            this.cache = null;
+            this.loadExecutor = null;
+            return;
+        }
+        this.loadExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        this.cache = Caffeine.newBuilder()
+                .refreshAfterWrite(ttl) // После ttl отдаём старое значение и обновляем в фоне
+                .expireAfterWrite(ttl.plus(externalApiProperties.getCacheStaleTtl())) // Дольше старое не отдаём
+                // Загрузка — в виртуальном потоке: вызывающий ждёт CompletableFuture, а не блокировку внутри
+                // ConcurrentHashMap.compute, и ожидание HTTP-ответа не занимает потоки ForkJoinPool
+                .executor(loadExecutor)
+                .recordStats() // Статистика попаданий/промахов для метрик
+                .buildAsync(new CacheLoader<>() {
+                    // null (API недоступен) не кэшируется
+                    @Override
+                    public String load(String url) {
+                        return fetch(url);
+                    }
+
+                    // API недоступен — оставляем прежнее значение до следующей попытки обновления
+                    @Override
+                    public String reload(String url, String oldValue) {
+                        String value = fetch(url);
+                        return value != null ? value : oldValue;
+                    }
+                });
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, NAME);
     }
 
     /**
-     * Выполняет GET-запрос к внешнему API и возвращает результат как строку.
+     * Выполняет GET-запрос к внешнему API (или берёт ответ из кэша) и возвращает результат как строку.
+     * Если API недоступен или ожидающих ответа API вызовов слишком много, возвращает external.api.fallback.
      *
      * @return ответ от внешнего API в виде строки
      */
     public String callExternalApi() {
-        return restTemplate.getForObject(externalApiProperties.getUrl(), String.class);
+        String url = externalApiProperties.getUrl();
+        // Все одновременные вызовы по отсутствующему ключу получают один и тот же future
+        CompletableFuture<String> cached = cache == null ? null : cache.get(url);
+        String value;
+        if (cached != null && cached.isDone()) {
+            value = cached.join();
+        } else {
+            try {
+                value = bulkhead.executeSupplier(() -> cached != null ? cached.join() : fetch(url));
+            } catch (BulkheadFullException exception) {
+                bulkheadFullFallbacks.increment();
+                return externalApiProperties.getFallback();
+            }
+        }
+        if (value == null) {
+            unavailableFallbacks.increment();
+            return externalApiProperties.getFallback();
+        }
+        return value;
+    }
+
+    /**
+     * Запрос к API через предохранитель.
+     *
+     * @return ответ API или null, если API ответил ошибкой или цепь разомкнута.
+     * Ошибка — не исключение: иначе Caffeine записывал бы в лог стек каждой неудачной загрузки
+     */
+    private String fetch(String url) {
+        try {
+            return circuitBreaker.executeSupplier(
+                    () -> upstreamTimer.record(() -> restTemplate.getForObject(url, String.class)));
+        } catch (CallNotPermittedException exception) {
+            return null;
+        } catch (RuntimeException exception) {
+            log.warn("External API call failed: {}", exception.toString());
+            return null;
+        }
+    }
+
+    /**
+     * Останавливает фоновые загрузки кэша: ожидающие ответа API прерываются,
+     * остановка ждёт их не дольше таймаута ответа.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (loadExecutor == null) {
+            return;
+        }
+        loadExecutor.shutdownNow();
+        if (!loadExecutor.awaitTermination(getTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+            log.warn("External API cache loads did not stop within {}", getTimeout());
+        }
+    }
+
+    private static Counter fallbackCounter(String reason, MeterRegistry meterRegistry) {
+        return Counter.builder("external.api.fallbacks")
+                .description("External API calls answered with the fallback response")
+                .tag("reason", reason)
+                .register(meterRegistry);
     }
 
     /**
-     * Возвращает значение таймаута, заданное в настройках.
+     * Возвращает таймаут ожидания ответа, заданный в настройках.
      *
-     * @return таймаут в виде строки (например, "5000")
+     * @return таймаут (например, 5s)
      */
-    public String getTimeout() {
+    public Duration getTimeout() {
         return externalApiProperties.getTimeout();
     }
-}
\ No newline at end of file
+}
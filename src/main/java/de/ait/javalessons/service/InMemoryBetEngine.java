@@ -0,0 +1,320 @@
+package de.ait.javalessons.service;
+
+import de.ait.javalessons.model.Bet;
+import de.ait.javalessons.model.Player;
+import de.ait.javalessons.repository.BetRepository;
+import de.ait.javalessons.repository.PlayerRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory движок ставок с отложенной записью (write-behind).
+ * Балансы игроков хранятся в памяти и меняются без блокировок (CAS по AtomicInteger),
+ * ставки складываются в ограниченную очередь, а фоновый поток пишет их в базу пакетами —
+ * по таймеру (casino.engine.flush-interval) или раньше, когда в очереди набралось
+ * casino.engine.batch-size ставок.
+ *
+ * Если очередь заполнена дольше casino.engine.enqueue-timeout, ставка отклоняется, а баланс возвращается —
+ * вызывающий поток не ждёт бесконечно, когда база недоступна. До постановки в очередь списывается только ставка,
+ * выигрыш зачисляется после: непринятый выигрыш нельзя успеть потратить, и возврат не уводит баланс в минус.
+ *
+ * Пакет, который база отвергла из-за ограничения (например, игрока удалили), пишется по одной ставке:
+ * такие ставки пропускаются с записью в лог и метрикой casino.engine.rejected, остальные сохраняются.
+ * При других ошибках (база недоступна) пакет повторяется.
+ * При остановке приложения приём ставок сначала закрывается (ставка, уже прошедшая проверку, успевает
+ * встать в очередь), затем очередь дописывается. Если база так и не принимает запись дольше
+ * casino.engine.shutdown-timeout, оставшиеся ставки теряются с записью в лог — остановка не зависает.
+ *
+ * В этом режиме источник истины для баланса — память: баланс в базе догоняет его после каждой записи пакета.
+ * Баланс игрока загружается из базы при его первой ставке.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "casino.engine", havingValue = "in-memory")
+public class InMemoryBetEngine implements BetEngine {
+
+    /**
+     * Ставка, ожидающая записи в базу.
+     */
+    private record PendingBet(Long playerId, int amount, boolean win, LocalDateTime timeOfBet, AtomicBoolean credited) {
+    }
+
+    // Проигрыш зачислять нечего: общий флаг вместо нового на каждую ставку
+    private static final AtomicBoolean NOTHING_TO_CREDIT = new AtomicBoolean(true);
+
+    private final PlayerRepository playerRepository;
+
+    private final BetRepository betRepository;
+
+    private final EntityManager entityManager;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final BetOutcomeGenerator outcomeGenerator;
+
+    private final ConcurrentHashMap<Long, AtomicInteger> balances = new ConcurrentHashMap<>();
+
+    private final BlockingQueue<PendingBet> queue;
+
+    private final int batchSize;
+
+    private final long flushIntervalNanos;
+
+    private final long enqueueTimeoutNanos;
+
+    private final Duration shutdownTimeout;
+
+    private final Timer flushTimer;
+
+    private final Counter rejectedCounter;
+
+    private final Thread flusher;
+
+    // Ставки принимаются под read-блокировкой, остановка берёт write: после неё никто не добавит ставку в очередь
+    private final ReadWriteLock acceptLock = new ReentrantReadWriteLock();
+
+    private volatile boolean running = true;
+
+    // System.nanoTime(), после которого фоновый поток перестаёт повторять запись при остановке
+    private volatile long stopDeadlineNanos;
+
+    public InMemoryBetEngine(PlayerRepository playerRepository,
+                             BetRepository betRepository,
+                             EntityManager entityManager,
+                             PlatformTransactionManager transactionManager,
+                             BetOutcomeGenerator outcomeGenerator,
+                             MeterRegistry meterRegistry,
+                             @Value("${casino.engine.queue-capacity:100000}") int queueCapacity,
+                             @Value("${casino.engine.batch-size:500}") int batchSize,
+                             @Value("${casino.engine.flush-interval:200ms}") Duration flushInterval,
+                             @Value("${casino.engine.enqueue-timeout:1s}") Duration enqueueTimeout,
+                             @Value("${casino.engine.shutdown-timeout:10s}") Duration shutdownTimeout) {
+        this.playerRepository = playerRepository;
+        this.betRepository = betRepository;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.outcomeGenerator = outcomeGenerator;
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.enqueueTimeoutNanos = enqueueTimeout.toNanos();
+        this.shutdownTimeout = shutdownTimeout;
+
+        Gauge.builder("casino.engine.queue", queue, BlockingQueue::size)
+                .description("Bets waiting to be written to the database")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("casino.engine.flush")
+                .description("Time to write one batch of bets")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("casino.engine.rejected")
+                .description("Bets the database refused to store; skipped")
+                .register(meterRegistry);
+
+        this.flusher = new Thread(this::flushLoop, "bet-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    @Override
+    public BetOutcome placeBet(Long playerId, int amount) {
+        if (amount <= 0) {
+            throw new IllegalArgumentException("Сумма ставки должна быть положительной");
+        }
+        acceptLock.readLock().lock();
+        try {
+            if (!running) {
+                throw new IllegalStateException("Движок ставок остановлен");
+            }
+            return accept(playerId, amount);
+        } finally {
+            acceptLock.readLock().unlock();
+        }
+    }
+
+    private BetOutcome accept(Long playerId, int amount) {
+        AtomicInteger balance = balances.get(playerId);
+        if (balance == null) {
+            // Загрузка вне computeIfAbsent: функция выполняется под synchronized-блокировкой ConcurrentHashMap
+            // и закрепила бы виртуальный поток на время запроса к базе. Из параллельных загрузок побеждает первая
+            AtomicInteger loaded = loadBalance(playerId);
+            AtomicInteger existing = balances.putIfAbsent(playerId, loaded);
+            balance = existing != null ? existing : loaded;
+        }
+
+        boolean win = outcomeGenerator.nextWin();
+        int winSize = win ? amount * 2 : 0;
+
+        // Списание без блокировок: повторяем CAS, пока баланс не изменится атомарно
+        int current;
+        do {
+            current = balance.get();
+            if (current < amount) {
+                return BetOutcome.INSUFFICIENT_FUNDS;
+            }
+        } while (!balance.compareAndSet(current, current - amount));
+
+        PendingBet bet = new PendingBet(playerId, amount, win, LocalDateTime.now(),
+                win ? new AtomicBoolean() : NOTHING_TO_CREDIT);
+        boolean queued;
+        try {
+            // Ограниченная очередь: если база не успевает, вызывающий поток ждёт (backpressure), но не дольше таймаута
+            queued = queue.offer(bet, enqueueTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException exception) {
+            balance.addAndGet(amount); // Ставка не принята — возвращаем списанное
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Ставка прервана", exception);
+        }
+        if (!queued) {
+            balance.addAndGet(amount);
+            throw new IllegalStateException("Очередь ставок переполнена");
+        }
+        if (win) {
+            balance.addAndGet(winSize);
+            bet.credited().set(true); // Фоновый поток ждёт этого, прежде чем записать баланс игрока
+        }
+        if (queue.size() >= batchSize) {
+            LockSupport.unpark(flusher); // Порог достигнут — пишем, не дожидаясь таймера
+        }
+        return win ? BetOutcome.WIN : BetOutcome.LOSS;
+    }
+
+    private AtomicInteger loadBalance(Long playerId) {
+        Player player = playerRepository.findById(playerId)
+                .orElseThrow(() -> new IllegalArgumentException("Игрок не найден"));
+        return new AtomicInteger(player.getBalance());
+    }
+
+    private void flushLoop() {
+        List<PendingBet> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty() || !batch.isEmpty()) {
+            if (batch.isEmpty() && queue.size() < batchSize && running) {
+                LockSupport.parkNanos(this, flushIntervalNanos);
+            }
+            if (batch.isEmpty()) {
+                queue.drainTo(batch, batchSize);
+            }
+            if (batch.isEmpty()) {
+                continue;
+            }
+            awaitCredited(batch);
+            try {
+                try {
+                    flushTimer.record(() -> write(batch));
+                } catch (DataIntegrityViolationException exception) {
+                    // Повтор этого пакета упадёт так же и остановит запись для всех игроков — отсеиваем виноватые ставки
+                    log.warn("Batch of {} bets rejected by the database, writing one by one: {}",
+                            batch.size(), exception.getMostSpecificCause().getMessage());
+                    writeOneByOne(batch);
+                }
+                batch.clear();
+            } catch (RuntimeException exception) {
+                if (!running && System.nanoTime() - stopDeadlineNanos > 0) {
+                    log.error("Failed to write {} bets before shutdown timeout, {} more left in queue; they are lost",
+                            batch.size(), queue.size(), exception);
+                    return;
+                }
+                // Пакет остаётся в памяти и будет записан при следующей попытке
+                log.error("Failed to write {} bets, will retry", batch.size(), exception);
+                LockSupport.parkNanos(this, flushIntervalNanos);
+            }
+        }
+    }
+
+    // Ставка попадает в очередь раньше, чем зачислен её выигрыш; зачисление идёт сразу за постановкой,
+    // поэтому ждать приходится мгновения — но без этого в базу мог бы уйти баланс без выигрыша
+    private static void awaitCredited(List<PendingBet> batch) {
+        for (PendingBet pending : batch) {
+            while (!pending.credited().get()) {
+                Thread.yield();
+            }
+        }
+    }
+
+    // Записанные и отклонённые ставки убираются из пакета: при сбое базы посередине повторяется только остаток
+    private void writeOneByOne(List<PendingBet> batch) {
+        Iterator<PendingBet> iterator = batch.iterator();
+        while (iterator.hasNext()) {
+            PendingBet pending = iterator.next();
+            try {
+                write(List.of(pending));
+            } catch (DataIntegrityViolationException exception) {
+                rejectedCounter.increment();
+                log.error("Bet of {} by player {} at {} rejected by the database, skipped: {}", pending.amount(),
+                        pending.playerId(), pending.timeOfBet(), exception.getMostSpecificCause().getMessage());
+            }
+            iterator.remove();
+        }
+    }
+
+    private void write(List<PendingBet> batch) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Set<Long> playerIds = new HashSet<>();
+            List<Bet> bets = new ArrayList<>(batch.size());
+            for (PendingBet pending : batch) {
+                Bet bet = new Bet();
+                bet.setAmount(pending.amount());
+                bet.setWin(pending.win());
+                bet.setTimeOfBet(pending.timeOfBet());
+                bet.setPlayer(entityManager.getReference(Player.class, pending.playerId()));
+                bets.add(bet);
+                playerIds.add(pending.playerId());
+            }
+            betRepository.saveAll(bets); // INSERT пакетами по hibernate.jdbc.batch_size
+            for (Long playerId : playerIds) {
+                playerRepository.updateBalance(playerId, balances.get(playerId).get());
+            }
+        });
+        log.debug("Wrote {} bets to the database", batch.size());
+    }
+
+    /**
+     * Прекращает приём ставок и дописывает в базу всё, что осталось в очереди,
+     * не дольше casino.engine.shutdown-timeout.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        // Ждёт ставки, уже прошедшие проверку running: после этого очередь только убывает
+        acceptLock.writeLock().lock();
+        try {
+            stopDeadlineNanos = System.nanoTime() + shutdownTimeout.toNanos();
+            running = false;
+        } finally {
+            acceptLock.writeLock().unlock();
+        }
+        LockSupport.unpark(flusher);
+        // Запас на запись, начатую перед самым сроком
+        if (!flusher.join(shutdownTimeout.plus(shutdownTimeout))) {
+            log.error("Bet engine did not stop in time, {} bets left in queue", queue.size());
+            return;
+        }
+        log.info("Bet engine stopped, queue drained");
+    }
+}
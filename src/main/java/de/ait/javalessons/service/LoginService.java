@@ -0,0 +1,99 @@
+package de.ait.javalessons.service;
+
+import de.ait.javalessons.model.AuthRequest;
+import de.ait.javalessons.utils.JwtUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Сервис логина. Проверка пароля (BCrypt) стоит десятки миллисекунд CPU, поэтому выполняется
+ * не на потоке Tomcat, а в отдельном пуле размером с число процессоров и с ограниченной очередью.
+ * Если очередь заполнена, задача сразу отклоняется ({@link RejectedExecutionException}),
+ * и клиент получает быстрый ответ 503 вместо того, чтобы занимать поток запроса.
+ */
+@Service
+public class LoginService {
+
+    private final AuthenticationManager authenticationManager;
+
+    private final JwtUtils jwtUtils;
+
+    private final ThreadPoolExecutor executor;
+
+    private final ExecutorService monitoredExecutor;
+
+    private final Timer loginTimer;
+
+    public LoginService(AuthenticationManager authenticationManager,
+                        JwtUtils jwtUtils,
+                        MeterRegistry meterRegistry,
+                        @Value("${auth.login.pool-size:0}") int poolSize,
+                        @Value("${auth.login.queue-capacity:100}") int queueCapacity) {
+        this.authenticationManager = authenticationManager;
+        this.jwtUtils = jwtUtils;
+
+        // 0 — размер пула по числу процессоров
+        int threads = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                threads, threads,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), // Ограниченная очередь — источник backpressure
+                runnable -> {
+                    Thread thread = new Thread(runnable, "login-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy()); // При переполнении — RejectedExecutionException
+
+        // Метрики executor.queued, executor.active, executor.queue.remaining и т.д. с тегом name=auth.login
+        this.monitoredExecutor = ExecutorServiceMetrics.monitor(meterRegistry, executor, "auth.login");
+        this.loginTimer = Timer.builder("auth.login")
+                .description("Login latency including time spent in the queue")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * Ставит проверку логина и пароля в очередь пула.
+     *
+     * @param authRequest логин и пароль
+     * @return future с JWT-токеном; завершается AuthenticationException при неверных данных
+     * @throws RejectedExecutionException если очередь логинов заполнена
+     */
+    public CompletableFuture<String> login(AuthRequest authRequest) {
+        Timer.Sample sample = Timer.start();
+        return CompletableFuture.supplyAsync(() -> authenticate(authRequest), monitoredExecutor)
+                .whenComplete((token, exception) -> sample.stop(loginTimer));
+    }
+
+    private String authenticate(AuthRequest authRequest) {
+        Authentication authentication = authenticationManager.authenticate(
+                new UsernamePasswordAuthenticationToken(authRequest.getUsername(), authRequest.getPassword())
+        );
+
+        UserDetails userDetails = (UserDetails) authentication.getPrincipal();
+        return jwtUtils.generateToken(userDetails);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,40 @@
+package de.ait.javalessons.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Детерминированный генератор исходов: n-я ставка после запуска получает исход,
+ * который зависит только от seed и n (функция перемешивания SplitMix64, как в SplittableRandom).
+ * Один и тот же seed даёт одну и ту же последовательность исходов — для нагрузочных тестов и повторного прогона.
+ * Общее состояние — только счётчик (getAndIncrement), без CAS-цикла, как у java.util.Random.
+ */
+@Component
+@ConditionalOnProperty(name = "casino.rng", havingValue = "seeded")
+public class SeededOutcomeGenerator implements BetOutcomeGenerator {
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private final long seed;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    public SeededOutcomeGenerator(@Value("${casino.rng.seed:42}") long seed) {
+        this.seed = seed;
+    }
+
+    @Override
+    public boolean nextWin() {
+        long index = sequence.getAndIncrement();
+        return mix64(seed + index * GOLDEN_GAMMA) < 0; // Старший бит — равновероятный исход
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,20 @@
+package de.ait.javalessons.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Генератор исходов на {@link ThreadLocalRandom}: у каждого потока своё состояние,
+ * поэтому потоки запросов не конкурируют за общий Random, как при Math.random().
+ */
+@Component
+@ConditionalOnProperty(name = "casino.rng", havingValue = "thread-local", matchIfMissing = true)
+public class ThreadLocalOutcomeGenerator implements BetOutcomeGenerator {
+
+    @Override
+    public boolean nextWin() {
+        return ThreadLocalRandom.current().nextBoolean();
+    }
+}
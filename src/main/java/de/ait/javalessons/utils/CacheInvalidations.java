@@ -0,0 +1,63 @@
+package de.ait.javalessons.utils;
+
+import com.github.benmanes.caffeine.cache.Cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Защита кэша, который загружается вне cache.get(key, loader), от возврата устаревшего значения.
+ * Загрузка и запись в кэш не атомарны со сбросом: чтение, начатое до сброса, могло бы положить
+ * старую строку обратно уже после него — и она жила бы до конца TTL.
+ * Поэтому каждый сброс увеличивает счётчик ключа, а запись после загрузки проверяет, что счётчик
+ * не изменился с начала загрузки; иначе только что положенное значение удаляется.
+ * Счётчики разбиты на полосы по хэшу ключа: память не растёт с числом ключей, а совпадение полос
+ * приводит лишь к лишнему промаху.
+ */
+public class CacheInvalidations {
+
+    private static final int STRIPES = 64;
+
+    private final AtomicLongArray generations = new AtomicLongArray(STRIPES);
+
+    /**
+     * Счётчик сбросов ключа; читается до начала загрузки.
+     *
+     * @param key ключ кэша
+     * @return значение для {@link #put}
+     */
+    public long generation(Object key) {
+        return generations.get(stripe(key));
+    }
+
+    /**
+     * Кладёт загруженное значение, если ключ не сбрасывали с момента {@link #generation}.
+     *
+     * @param cache      кэш
+     * @param key        ключ
+     * @param value      загруженное значение
+     * @param generation счётчик, прочитанный до загрузки
+     */
+    public <K, V> void put(Cache<K, V> cache, K key, V value, long generation) {
+        cache.put(key, value);
+        // Проверка после записи: сброс между проверкой и put всё равно удалил бы запись, а здесь это сделаем мы
+        if (generations.get(stripe(key)) != generation) {
+            cache.invalidate(key);
+        }
+    }
+
+    /**
+     * Сбрасывает ключ: сначала счётчик, затем запись — незавершённые загрузки свой результат уже не сохранят.
+     *
+     * @param cache кэш
+     * @param key   ключ
+     */
+    public <K> void invalidate(Cache<K, ?> cache, K key) {
+        generations.incrementAndGet(stripe(key));
+        cache.invalidate(key);
+    }
+
+    private static int stripe(Object key) {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & (STRIPES - 1);
+    }
+}
@@ -0,0 +1,37 @@
+package de.ait.javalessons.utils;
+
+import de.ait.javalessons.model.EntityVersion;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.WebRequest;
+
+/**
+ * Условные GET-запросы (If-None-Match / If-Modified-Since) для ресурсов с версией.
+ * Проверка выполняется до загрузки и сериализации данных: если представление у клиента актуально,
+ * ответ — 304 без тела. Заголовки ETag и Last-Modified выставляются в обоих случаях.
+ */
+public final class ConditionalRequests {
+
+    private ConditionalRequests() {
+    }
+
+    /**
+     * @param request текущий запрос
+     * @return true, если клиент прислал валидатор закэшированного представления
+     */
+    public static boolean isConditional(WebRequest request) {
+        return request.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+                || request.getHeader(HttpHeaders.IF_MODIFIED_SINCE) != null;
+    }
+
+    /**
+     * Сверяет версию ресурса с валидаторами запроса и выставляет ETag и Last-Modified.
+     *
+     * @param request текущий запрос
+     * @param version версия ресурса
+     * @return true, если ответ 304 уже подготовлен и тело отдавать не нужно
+     */
+    public static boolean checkNotModified(WebRequest request, EntityVersion version) {
+        long lastModified = version.getLastModified() == null ? -1 : version.getLastModified().toEpochMilli();
+        return request.checkNotModified(version.eTag(), lastModified);
+    }
+}
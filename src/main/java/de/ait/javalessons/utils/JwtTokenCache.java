@@ -0,0 +1,81 @@
+package de.ait.javalessons.utils;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Optional;
+
+/**
+ * Кэш уже проверенных JWT-токенов.
+ * Клиенты присылают один и тот же токен тысячи раз, поэтому разбор и проверку подписи
+ * достаточно выполнить один раз — дальше claims берутся из кэша до момента истечения токена (exp).
+ * Ключ кэша — SHA-256 от токена, чтобы не хранить сами токены в памяти.
+ */
+@Component
+public class JwtTokenCache {
+
+    private final JwtUtils jwtUtils;
+
+    private final Cache<String, Claims> cache;
+
+    public JwtTokenCache(JwtUtils jwtUtils,
+                         MeterRegistry meterRegistry,
+                         @Value("${jwt.cache.max-size:10000}") long maxSize) {
+        this.jwtUtils = jwtUtils;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize) // Ограничиваем размер кэша
+                .expireAfter(Expiry.creating((String hash, Claims claims) -> timeToLive(claims))) // Запись живёт до exp токена
+                .recordStats() // Статистика попаданий/промахов для метрик
+                .build();
+        // Метрики cache.gets{result=hit|miss}, cache.size, cache.evictions с тегом cache=jwt.tokens
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "jwt.tokens");
+    }
+
+    /**
+     * Возвращает claims токена: из кэша или после однократной проверки через {@link JwtUtils}.
+     * Невалидные токены в кэш не попадают.
+     *
+     * @param token JWT-токен
+     * @return claims токена или пустой Optional, если токен невалиден
+     */
+    public Optional<Claims> getClaims(String token) {
+        String hash = hash(token);
+        Claims claims = cache.getIfPresent(hash);
+        if (claims != null) {
+            return Optional.of(claims);
+        }
+        Optional<Claims> parsed = jwtUtils.parseClaims(token);
+        parsed.ifPresent(value -> cache.put(hash, value));
+        return parsed;
+    }
+
+    private static Duration timeToLive(Claims claims) {
+        Date expiration = claims.getExpiration();
+        if (expiration == null) {
+            return Duration.ZERO; // Токены без срока действия не кэшируем
+        }
+        Duration ttl = Duration.ofMillis(expiration.getTime() - System.currentTimeMillis());
+        return ttl.isNegative() ? Duration.ZERO : ttl;
+    }
+
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException("SHA-256 is not available", exception);
+        }
+    }
+}
@@ -1,24 +1,34 @@
 package de.ait.javalessons.utils;
 
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
-import lombok.extern.slf4j.Slf4j;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
 import java.util.Date;
+import java.util.List;
+import java.util.Optional;
 
 /**
  * Утилита для работы с JWT-токенами:
  * - генерация токена
  * - извлечение username
  * - валидация токена
+ * Время генерации и проверки пишется в таймеры jwt.generate и jwt.validate{result},
+ * отклонённые токены — в {@link SecurityEventRecorder}.
  */
 @Component
-@Slf4j
 public class JwtUtils {
 
     /**
@@ -33,12 +43,48 @@ public class JwtUtils {
      */
     private final long jwtExpirationMs = 8640000;
 
+    /**
+     * Имя claim, в котором хранятся роли пользователя.
+     */
+    public static final String ROLES_CLAIM = "roles";
+
     /**
      * Секретный ключ, сгенерированный из строки `jwtSecret`.
      * Используется для подписи и валидации токенов.
      */
     SecretKey key = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
 
+    /**
+     * Парсер токенов. Неизменяем и потокобезопасен, поэтому создаётся один раз,
+     * а не на каждый вызов.
+     */
+    private final JwtParser jwtParser = Jwts.parserBuilder()
+            .setSigningKey(key)
+            .build();
+
+    private final SecurityEventRecorder securityEventRecorder;
+
+    private final Timer generateTimer;
+
+    private final Timer validTimer;
+
+    private final Timer invalidTimer;
+
+    public JwtUtils(MeterRegistry meterRegistry, SecurityEventRecorder securityEventRecorder) {
+        this.securityEventRecorder = securityEventRecorder;
+        this.generateTimer = Timer.builder("jwt.generate")
+                .description("Time to build and sign a token")
+                .register(meterRegistry);
+        this.validTimer = Timer.builder("jwt.validate")
+                .description("Time to parse and verify a token")
+                .tag("result", "valid")
+                .register(meterRegistry);
+        this.invalidTimer = Timer.builder("jwt.validate")
+                .description("Time to parse and verify a token")
+                .tag("result", "invalid")
+                .register(meterRegistry);
+    }
+
     /**
      * Генерация JWT-токена на основе имени пользователя.
      *
@@ -46,12 +92,49 @@ public class JwtUtils {
      * @return строка токена
      */
     public String generateToken(String username) {
-        return Jwts.builder()
+        return generateTimer.record(() -> Jwts.builder()
                 .setSubject(username) // Сохраняем имя пользователя в subject
                 .setIssuedAt(new Date()) // Время создания
                 .setExpiration(new Date(System.currentTimeMillis() + jwtExpirationMs)) // Время окончания действия
                 .signWith(key, SignatureAlgorithm.HS256) // Подпись токена алгоритмом HS256 и ключом
-                .compact();
+                .compact());
+    }
+
+    /**
+     * Генерация JWT-токена с именем пользователя и его ролями (claim "roles").
+     * Роли в токене позволяют собрать principal без обращения к базе.
+     *
+     * @param userDetails аутентифицированный пользователь
+     * @return строка токена
+     */
+    public String generateToken(UserDetails userDetails) {
+        List<String> roles = userDetails.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .toList();
+        return generateTimer.record(() -> Jwts.builder()
+                .setSubject(userDetails.getUsername())
+                .claim(ROLES_CLAIM, roles)
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + jwtExpirationMs))
+                .signWith(key, SignatureAlgorithm.HS256)
+                .compact());
+    }
+
+    /**
+     * Собирает principal из claims уже проверенного токена, без загрузки пользователя из базы.
+     *
+     * @param claims claims проверенного токена
+     * @return UserDetails или пустой Optional, если в токене нет claim "roles"
+     */
+    public Optional<UserDetails> extractUserDetails(Claims claims) {
+        Object roles = claims.get(ROLES_CLAIM);
+        if (!(roles instanceof List<?> roleList)) {
+            return Optional.empty();
+        }
+        List<SimpleGrantedAuthority> authorities = roleList.stream()
+                .map(role -> new SimpleGrantedAuthority(String.valueOf(role)))
+                .toList();
+        return Optional.of(new User(claims.getSubject(), "", authorities));
     }
 
     /**
@@ -61,14 +144,31 @@ public class JwtUtils {
      * @return subject (username)
      */
     public String extractUsername(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
+        return jwtParser.parseClaimsJws(token)
                 .getBody()
                 .getSubject();
     }
 
+    /**
+     * Проверяет токен (подпись, структура, срок действия) и возвращает его claims
+     * за один разбор.
+     *
+     * @param token JWT-токен
+     * @return claims токена или пустой Optional, если токен невалиден
+     */
+    public Optional<Claims> parseClaims(String token) {
+        Timer.Sample sample = Timer.start();
+        try {
+            Claims claims = jwtParser.parseClaimsJws(token).getBody(); // Бросает исключения при невалидном токене
+            sample.stop(validTimer);
+            return Optional.of(claims);
+        } catch (JwtException | IllegalArgumentException exception) {
+            sample.stop(invalidTimer);
+            securityEventRecorder.invalidToken(exception); // Счётчик по причине и ограниченный по частоте лог
+            return Optional.empty();
+        }
+    }
+
     /**
      * Проверяет корректность токена: подпись, структура и срок действия.
      *
@@ -76,16 +176,6 @@ public class JwtUtils {
      * @return true если токен валиден, иначе false
      */
     public boolean validateToken(String token) {
-        try {
-            Jwts.parserBuilder()
-                    .setSigningKey(key)
-                    .build()
-                    .parseClaimsJws(token); // Бросает исключения при невалидном токене
-            log.info("Token is valid");
-            return true;
-        } catch (JwtException exception) {
-            log.error("Invalid JWT token", exception);
-            return false;
-        }
+        return parseClaims(token).isPresent();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,120 @@
+package de.ait.javalessons.utils;
+
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.UnsupportedJwtException;
+import io.jsonwebtoken.security.SecurityException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Учёт событий безопасности — отклонённых JWT-токенов.
+ * Каждое событие увеличивает счётчик jwt.validation.failures{reason}, а в лог попадает не больше
+ * security.events.log-limit строк за интервал security.events.log-interval. Остальные события
+ * только считаются: первая строка следующего интервала сообщает, сколько их было пропущено и по каким причинам.
+ * Так клиент, который в цикле присылает просроченный токен, или сканер не забивают диск и не тратят CPU на логи.
+ */
+@Slf4j
+@Component
+public class SecurityEventRecorder {
+
+    /**
+     * Причина отклонения токена.
+     */
+    public enum InvalidTokenReason {
+        EXPIRED,
+        BAD_SIGNATURE,
+        MALFORMED,
+        UNSUPPORTED;
+
+        /**
+         * Определяет причину по исключению, брошенному парсером JJWT.
+         */
+        public static InvalidTokenReason of(Exception exception) {
+            if (exception instanceof ExpiredJwtException) {
+                return EXPIRED;
+            }
+            if (exception instanceof SecurityException) { // SignatureException и прочие ошибки проверки подписи
+                return BAD_SIGNATURE;
+            }
+            if (exception instanceof UnsupportedJwtException) {
+                return UNSUPPORTED;
+            }
+            return MALFORMED; // MalformedJwtException, пустой токен (IllegalArgumentException) и т.п.
+        }
+    }
+
+    private final Map<InvalidTokenReason, Counter> counters = new EnumMap<>(InvalidTokenReason.class);
+
+    // События, не попавшие в лог в текущем интервале
+    private final Map<InvalidTokenReason, LongAdder> suppressed = new EnumMap<>(InvalidTokenReason.class);
+
+    private final int logLimit;
+
+    private final long logIntervalNanos;
+
+    private final AtomicLong intervalStart = new AtomicLong(System.nanoTime());
+
+    private final AtomicInteger loggedInInterval = new AtomicInteger();
+
+    public SecurityEventRecorder(MeterRegistry meterRegistry,
+                                 @Value("${security.events.log-limit:10}") int logLimit,
+                                 @Value("${security.events.log-interval:1m}") Duration logInterval) {
+        this.logLimit = logLimit;
+        this.logIntervalNanos = logInterval.toNanos();
+        for (InvalidTokenReason reason : InvalidTokenReason.values()) {
+            counters.put(reason, Counter.builder("jwt.validation.failures")
+                    .description("Rejected JWT tokens")
+                    .tag("reason", reason.name().toLowerCase())
+                    .register(meterRegistry));
+            suppressed.put(reason, new LongAdder());
+        }
+    }
+
+    /**
+     * Регистрирует отклонённый токен.
+     *
+     * @param exception исключение парсера JJWT; стек в лог не пишется
+     */
+    public void invalidToken(Exception exception) {
+        InvalidTokenReason reason = InvalidTokenReason.of(exception);
+        counters.get(reason).increment();
+
+        long now = System.nanoTime();
+        long start = intervalStart.get();
+        // Новый интервал открывает только один поток — тот, кому удался CAS
+        if (now - start >= logIntervalNanos && intervalStart.compareAndSet(start, now)) {
+            loggedInInterval.set(0);
+            reportSuppressed();
+        }
+        if (loggedInInterval.incrementAndGet() <= logLimit) {
+            log.warn("Invalid JWT token ({}): {}", reason, exception.getMessage());
+        } else {
+            suppressed.get(reason).increment();
+        }
+    }
+
+    private void reportSuppressed() {
+        Map<InvalidTokenReason, Long> counts = new EnumMap<>(InvalidTokenReason.class);
+        long total = 0;
+        for (Map.Entry<InvalidTokenReason, LongAdder> entry : suppressed.entrySet()) {
+            long count = entry.getValue().sumThenReset();
+            if (count > 0) {
+                counts.put(entry.getKey(), count);
+                total += count;
+            }
+        }
+        if (total > 0) {
+            log.warn("{} more invalid JWT tokens were not logged in the previous interval: {}", total, counts);
+        }
+    }
+}
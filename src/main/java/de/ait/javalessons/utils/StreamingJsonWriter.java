@@ -0,0 +1,112 @@
+package de.ait.javalessons.utils;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EntityManager;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Потоковая отдача больших таблиц в JSON.
+ * Строки читаются курсором (JPA Stream) и пишутся в ответ по одной, поэтому расход памяти
+ * не зависит от размера таблицы. Формат — JSON-массив или NDJSON (одна строка на объект),
+ * если клиент прислал Accept: application/x-ndjson.
+ */
+@Component
+public class StreamingJsonWriter {
+
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    public static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType(APPLICATION_NDJSON_VALUE);
+
+    // Максимальный размер страницы для keyset-пагинации
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    private final ObjectMapper objectMapper;
+
+    private final EntityManager entityManager;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    public StreamingJsonWriter(ObjectMapper objectMapper,
+                               EntityManager entityManager,
+                               PlatformTransactionManager transactionManager) {
+        this.objectMapper = objectMapper;
+        this.entityManager = entityManager;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Ограничение размера страницы: от 1 до {@link #MAX_PAGE_SIZE}.
+     *
+     * @param size запрошенный размер страницы
+     * @return Limit для запроса в репозиторий
+     */
+    public static Limit pageLimit(int size) {
+        return Limit.of(Math.clamp(size, 1, MAX_PAGE_SIZE));
+    }
+
+    /**
+     * @param accept значение заголовка Accept
+     * @return true, если клиент просит NDJSON
+     */
+    public static boolean isNdjson(String accept) {
+        return accept != null && accept.contains(APPLICATION_NDJSON.toString());
+    }
+
+    /**
+     * Создаёт потоковый ответ. Запрос выполняется уже при записи ответа, в отдельной read-only транзакции.
+     *
+     * @param accept значение заголовка Accept
+     * @param query  запрос к репозиторию, возвращающий Stream
+     * @return ответ с телом, которое пишется построчно
+     */
+    public <T> ResponseEntity<StreamingResponseBody> stream(String accept, Supplier<Stream<T>> query) {
+        boolean ndjson = isNdjson(accept);
+        StreamingResponseBody body = outputStream -> readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<T> rows = query.get();
+                 JsonGenerator generator = objectMapper.createGenerator(outputStream)) {
+                generator.setRootValueSeparator(null); // Между объектами NDJSON — только перевод строки
+                if (!ndjson) {
+                    generator.writeStartArray();
+                }
+                Iterator<T> iterator = rows.iterator();
+                while (iterator.hasNext()) {
+                    T row = iterator.next();
+                    generator.writeObject(row);
+                    if (ndjson) {
+                        generator.writeRaw('\n');
+                    }
+                    // Отсоединяем сущность, чтобы контекст персистентности не рос вместе с таблицей
+                    // (DTO-проекции в контекст не попадают)
+                    if (row.getClass().isAnnotationPresent(Entity.class)) {
+                        entityManager.detach(row);
+                    }
+                }
+                if (!ndjson) {
+                    generator.writeEndArray();
+                }
+            } catch (IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+        });
+        return ResponseEntity.ok()
+                .contentType(ndjson ? APPLICATION_NDJSON : MediaType.APPLICATION_JSON)
+                .varyBy(HttpHeaders.ACCEPT) // Формат зависит от Accept — кэши должны это учитывать
+                .body(body);
+    }
+}
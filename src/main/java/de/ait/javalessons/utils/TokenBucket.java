@@ -0,0 +1,52 @@
+package de.ait.javalessons.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Корзина токенов без блокировок: ёмкость capacity запросов, пополнение rate запросов в секунду.
+ * Вместо пары «число токенов + время последнего пополнения» хранится одно число — момент,
+ * когда корзина снова станет полной (алгоритм GCRA). Поэтому попытка взять токен — это одно чтение
+ * и один CAS по AtomicLong, а пополнение по таймеру не нужно.
+ */
+public class TokenBucket {
+
+    // Время пополнения одного токена
+    private final long intervalNanos;
+
+    // Время пополнения всей корзины
+    private final long capacityNanos;
+
+    // Момент (System.nanoTime()), когда корзина снова будет полной; в прошлом — корзина уже полна
+    private final AtomicLong fullAt;
+
+    public TokenBucket(double ratePerSecond, int capacity) {
+        if (ratePerSecond <= 0 || capacity <= 0) {
+            throw new IllegalArgumentException("Скорость и ёмкость корзины должны быть положительными");
+        }
+        this.intervalNanos = Math.max(1, (long) (1_000_000_000L / ratePerSecond));
+        this.capacityNanos = intervalNanos * capacity;
+        this.fullAt = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Пытается взять один токен.
+     *
+     * @return 0 — токен взят; иначе через сколько наносекунд появится следующий токен
+     */
+    public long tryAcquire() {
+        while (true) {
+            long now = System.nanoTime();
+            long current = fullAt.get();
+            // Взять токен — сдвинуть момент заполнения на один интервал вперёд
+            long next = (current - now > 0 ? current : now) + intervalNanos;
+            long overflow = next - now - capacityNanos;
+            if (overflow > 0) {
+                return overflow; // Токенов нет, корзину не меняем
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+            // Параллельный запрос успел взять токен — пересчитываем
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package de.ait.javalessons.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.ait.javalessons.controller.RestApiBookController;
+import de.ait.javalessons.controller.RestApiCarController;
+import de.ait.javalessons.service.BookSearchIndex;
+import de.ait.javalessons.service.BookSearchIndexListener;
+import de.ait.javalessons.service.CatalogBulkImporter;
+import de.ait.javalessons.service.CatalogCache;
+import de.ait.javalessons.service.CatalogCacheListener;
+import de.ait.javalessons.utils.StreamingJsonWriter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Общая конфигурация тестов каталога (книги и машины): настоящие репозитории на H2, кэш, поисковый индекс,
+ * пакетная загрузка и контроллеры, связанные Spring, а не собранные вручную в каждом тесте —
+ * новая зависимость контроллера или сервиса меняет только этот файл.
+ * Без общей тестовой транзакции: сохранения фиксируются, как в приложении, и срабатывают действия после коммита.
+ * Статистика Hibernate включена, чтобы тесты считали SQL-запросы.
+ * Контекст общий для всех тестов с этой аннотацией: каждый тест удаляет свои строки сам.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@DataJpaTest(properties = {
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import(CatalogTest.Beans.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public @interface CatalogTest {
+
+    @TestConfiguration(proxyBeanMethods = false)
+    @Import({CatalogCache.class, CatalogCacheListener.class, BookSearchIndex.class, BookSearchIndexListener.class,
+            CatalogBulkImporter.class, StreamingJsonWriter.class, RestApiBookController.class,
+            RestApiCarController.class, SimpleMeterRegistry.class})
+    class Beans {
+
+        @Bean
+        ObjectMapper objectMapper() {
+            return Jackson2ObjectMapperBuilder.json().build();
+        }
+
+        @Bean
+        LocalValidatorFactoryBean validator() {
+            return new LocalValidatorFactoryBean();
+        }
+
+        // Standalone MockMvc поверх контроллеров из контекста: веб-контекст приложения здесь не поднимается
+        @Bean
+        MockMvc catalogMockMvc(RestApiBookController bookController, RestApiCarController carController) {
+            return MockMvcBuilders.standaloneSetup(bookController, carController).build();
+        }
+
+        @Bean
+        Statistics hibernateStatistics(EntityManagerFactory entityManagerFactory) {
+            return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package de.ait.javalessons.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.ait.javalessons.config.CatalogTest;
+import de.ait.javalessons.model.Book;
+import de.ait.javalessons.model.Car;
+import de.ait.javalessons.model.EntityVersion;
+import de.ait.javalessons.repository.BookRepository;
+import de.ait.javalessons.repository.CarRepository;
+import de.ait.javalessons.service.BookSearchIndex;
+import de.ait.javalessons.service.CatalogCache;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+
+/**
+ * PUT книг и машин: замена одним UPDATE, создание одним INSERT, сброс кэша и смена ETag.
+ * Число SQL-запросов считается через статистику Hibernate.
+ */
+@CatalogTest
+class CatalogPutTest {
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private CarRepository carRepository;
+
+    @Autowired
+    private CatalogCache catalogCache;
+
+    @Autowired
+    private BookSearchIndex bookSearchIndex;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        bookRepository.save(new Book("1", "Clean Code", "Robert C. Martin", 2008));
+        carRepository.save(new Car("1", "Audi A4"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        bookRepository.deleteAll();
+        carRepository.deleteAll();
+    }
+
+    @Test
+    void putExistingBookShouldApplyAllFieldsWithOneStatement() throws Exception {
+        String eTag = mockMvc.perform(get("/books/1")).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        Instant before = EntityVersion.now();
+        statistics.clear();
+        MockHttpServletResponse response = putJson("/books/1", new Book(null, "Clean Code, 2nd Edition", "Robert C. Martin", 2025));
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        // Один UPDATE, возвращающий новую версию для поискового индекса, — без загрузки сущности
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+
+        Book book = bookRepository.findById("1").orElseThrow();
+        assertThat(book.getTitle()).isEqualTo("Clean Code, 2nd Edition");
+        assertThat(book.getPublishYear()).isEqualTo(2025);
+        assertThat(book.getVersion()).isEqualTo(1);
+        // Время из нативного запроса записано без сдвига часового пояса
+        assertThat(book.getLastModified()).isBetween(before, Instant.now());
+        // Индекс поиска обновлён вручную: слушатели сущности UPDATE-запрос не видят
+        assertThat(bookSearchIndex.search("edition", 10)).extracting(Book::getId).containsExactly("1");
+
+        // Кэш сброшен, версия выросла: прежний ETag больше не совпадает
+        MockHttpServletResponse afterPut = mockMvc.perform(get("/books/1")
+                .header(HttpHeaders.IF_NONE_MATCH, eTag)).andReturn().getResponse();
+        assertThat(afterPut.getStatus()).isEqualTo(200);
+        assertThat(afterPut.getContentAsString()).contains("2nd Edition");
+        assertThat(afterPut.getHeader(HttpHeaders.ETAG)).isNotEqualTo(eTag);
+    }
+
+    @Test
+    void putMissingCarShouldInsertWithoutSelect() throws Exception {
+        statistics.clear();
+        MockHttpServletResponse response = putJson("/cars/2", new Car(null, "BMW M5"));
+
+        assertThat(response.getStatus()).isEqualTo(201);
+        assertThat(response.getContentAsString()).contains("\"id\":\"2\"");
+        // UPDATE, не нашедший строку, и INSERT — без SELECT перед сохранением
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(carRepository.findById("2")).map(Car::getName).contains("BMW M5");
+    }
+
+    @Test
+    void putExistingCarShouldUpdateName() throws Exception {
+        assertThat(putJson("/cars/1", new Car("1", "Audi A6")).getStatus()).isEqualTo(200);
+
+        assertThat(catalogCache.findCar("1")).map(Car::getName).contains("Audi A6");
+    }
+
+    @Test
+    void putIncompleteBookShouldReturnBadRequestAndKeepRow() throws Exception {
+        statistics.clear();
+        MockHttpServletResponse response = mockMvc.perform(put("/books/1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"title\": \"Only title\"}")).andReturn().getResponse();
+
+        assertThat(response.getStatus()).isEqualTo(400);
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(bookRepository.findById("1")).map(Book::getAuthor).contains("Robert C. Martin");
+    }
+
+    private MockHttpServletResponse putJson(String path, Object body) throws Exception {
+        return mockMvc.perform(put(path)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(body))).andReturn().getResponse();
+    }
+}
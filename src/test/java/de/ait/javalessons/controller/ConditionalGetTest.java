@@ -0,0 +1,136 @@
+package de.ait.javalessons.controller;
+
+import de.ait.javalessons.config.CatalogTest;
+import de.ait.javalessons.model.Book;
+import de.ait.javalessons.model.Car;
+import de.ait.javalessons.repository.BookRepository;
+import de.ait.javalessons.repository.CarRepository;
+import de.ait.javalessons.service.CatalogCache;
+import de.ait.javalessons.utils.StreamingJsonWriter;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * ETag и Last-Modified для книг и машин: контроллеры поверх настоящих репозиториев и кэша,
+ * число SQL-запросов считается через статистику Hibernate.
+ */
+@CatalogTest
+class ConditionalGetTest {
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private CarRepository carRepository;
+
+    @Autowired
+    private CatalogCache catalogCache;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        bookRepository.save(new Book("1", "Clean Code", "Robert C. Martin", 2008));
+        bookRepository.save(new Book("2", "1984", "George Orwell", 1949));
+        carRepository.save(new Car("1", "Audi A4"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        bookRepository.deleteAll();
+        carRepository.deleteAll();
+    }
+
+    @Test
+    void matchingETagShouldReturn304WithoutLoadingRow() throws Exception {
+        MockHttpServletResponse first = perform("/books/1", null);
+        assertThat(first.getStatus()).isEqualTo(200);
+        assertThat(first.getHeader(HttpHeaders.LAST_MODIFIED)).isNotNull();
+        String eTag = first.getHeader(HttpHeaders.ETAG);
+        assertThat(eTag).startsWith("\"0-");
+
+        // Книга в кэше: версия берётся оттуда, SQL нет
+        statistics.clear();
+        MockHttpServletResponse cached = perform("/books/1", eTag);
+        assertThat(cached.getStatus()).isEqualTo(304);
+        assertThat(cached.getContentAsString()).isEmpty();
+        assertThat(cached.getHeader(HttpHeaders.ETAG)).isEqualTo(eTag);
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+
+        // Книги нет в кэше: один запрос версии, сущность не загружается
+        catalogCache.evictBook("1");
+        statistics.clear();
+        assertThat(perform("/books/1", eTag).getStatus()).isEqualTo(304);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void updateShouldChangeETag() throws Exception {
+        String eTag = perform("/cars/1", null).getHeader(HttpHeaders.ETAG);
+
+        Car car = carRepository.findById("1").orElseThrow();
+        car.setName("Audi A6");
+        carRepository.save(car);
+
+        MockHttpServletResponse response = perform("/cars/1", eTag);
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isNotEqualTo(eTag).startsWith("\"1-");
+        assertThat(response.getContentAsString()).contains("Audi A6").doesNotContain("version");
+    }
+
+    @Test
+    void ifModifiedSinceShouldReturn304() throws Exception {
+        String lastModified = perform("/books/1", null).getHeader(HttpHeaders.LAST_MODIFIED);
+
+        MockHttpServletResponse response = mockMvc.perform(get("/books/1")
+                .header(HttpHeaders.IF_MODIFIED_SINCE, lastModified)).andReturn().getResponse();
+
+        assertThat(response.getStatus()).isEqualTo(304);
+    }
+
+    @Test
+    void listShouldReturn304UntilTableChanges() throws Exception {
+        String eTag = perform("/books", null).getHeader(HttpHeaders.ETAG);
+        assertThat(eTag).startsWith("W/\""); // Тело читается позже версии — ETag только слабый
+
+        statistics.clear();
+        assertThat(perform("/books", eTag).getStatus()).isEqualTo(304);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1); // Только сводная версия таблицы
+
+        // NDJSON — другое представление, у него свой ETag
+        MockHttpServletResponse ndjson = mockMvc.perform(get("/books")
+                .header(HttpHeaders.ACCEPT, StreamingJsonWriter.APPLICATION_NDJSON.toString())
+                .header(HttpHeaders.IF_NONE_MATCH, eTag)).andReturn().getResponse();
+        assertThat(ndjson.getStatus()).isEqualTo(200);
+
+        bookRepository.deleteById("2");
+        assertThat(perform("/books", eTag).getStatus()).isEqualTo(200);
+    }
+
+    private MockHttpServletResponse perform(String path, String ifNoneMatch) throws Exception {
+        var request = get(path);
+        if (ifNoneMatch != null) {
+            request.header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        MvcResult result = mockMvc.perform(request).andReturn();
+        if (result.getRequest().isAsyncStarted()) {
+            result.getAsyncResult(); // Потоковое тело пишется асинхронно: ждём, чтобы его SQL не попал в следующий замер
+        }
+        return result.getResponse();
+    }
+}
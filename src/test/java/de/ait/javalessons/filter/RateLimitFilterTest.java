@@ -0,0 +1,72 @@
+package de.ait.javalessons.filter;
+
+import de.ait.javalessons.properties.RateLimitProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimitFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private RateLimitFilter rateLimitFilter;
+
+    @BeforeEach
+    void setUp() {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setDefaultLimit(new RateLimitProperties.Limit(0.001, 3));
+        properties.getRoutes().put("/auth/login", new RateLimitProperties.Limit(0.001, 1));
+        rateLimitFilter = new RateLimitFilter(properties, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void loginShouldBeLimitedPerIp() throws Exception {
+        assertThat(send("POST", "/auth/login", "10.0.0.1").getStatus()).isEqualTo(200);
+
+        MockHttpServletResponse rejected = send("POST", "/auth/login", "10.0.0.1");
+        assertThat(rejected.getStatus()).isEqualTo(429);
+        assertThat(Long.parseLong(rejected.getHeader("Retry-After"))).isPositive();
+
+        // Другой IP — своя корзина
+        assertThat(send("POST", "/auth/login", "10.0.0.2").getStatus()).isEqualTo(200);
+        assertThat(meterRegistry.get("rate.limit.rejected").tag("route", "/auth/login").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void authenticatedClientShouldBeLimitedByUsernameAcrossIps() throws Exception {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                "alice", null, List.of(new SimpleGrantedAuthority("ROLE_USER"))));
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(send("GET", "/books", "10.0.0." + i).getStatus()).isEqualTo(200);
+        }
+        assertThat(send("GET", "/cars", "10.0.0.9").getStatus()).isEqualTo(429);
+        // Лимит маршрута /auth/login не зависит от лимита по умолчанию
+        assertThat(send("POST", "/auth/login", "10.0.0.9").getStatus()).isEqualTo(200);
+    }
+
+    private MockHttpServletResponse send(String method, String uri, String remoteAddr) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        request.setRemoteAddr(remoteAddr);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        rateLimitFilter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}
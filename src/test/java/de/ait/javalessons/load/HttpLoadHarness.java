@@ -0,0 +1,425 @@
+package de.ait.javalessons.load;
+
+import com.sun.net.httpserver.HttpServer;
+import de.ait.javalessons.SpringBootGr61EApplication;
+import de.ait.javalessons.config.SecurityConfigInMemory;
+import de.ait.javalessons.config.SecurityConfigJDBC;
+import de.ait.javalessons.config.SecurityConfigJPA;
+import de.ait.javalessons.model.AppUser;
+import de.ait.javalessons.model.BankAccount;
+import de.ait.javalessons.model.Book;
+import de.ait.javalessons.model.Car;
+import de.ait.javalessons.model.Player;
+import de.ait.javalessons.repository.AppUserRepository;
+import de.ait.javalessons.repository.BankAccountRepository;
+import de.ait.javalessons.repository.BookRepository;
+import de.ait.javalessons.repository.CarRepository;
+import de.ait.javalessons.repository.PlayerRepository;
+import de.ait.javalessons.serice.CustomUserDetailService;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalManagementPort;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Сквозной нагрузочный прогон по HTTP: приложение поднимается на случайном порту с H2 в памяти,
+ * клиенты на виртуальных потоках с заранее полученными токенами выполняют смешанную нагрузку
+ * (/books, /cars, пополнение и снятие /api/accounts, /casino/bet, /call к внешнему API, изредка повторный логин).
+ * По каждому эндпоинту печатаются пропускная способность и p50/p99/p999 (HdrHistogram).
+ * Внешний API — локальная заглушка; -Dload.upstream=failing (ответ 500) или hung (не отвечает)
+ * показывает, что при отказе внешнего API задержки остальных эндпоинтов не растут.
+ *
+ * Запуск: mvn -Pload test [-Dload.clients=64 -Dload.duration=60s -Dload.warmup=10s -Dload.upstream=hung]
+ * Сравнение с виртуальными потоками Tomcat: тот же прогон с -Dspring.threads.virtual.enabled=true.
+ * В обычный mvn test не входит (имя класса не заканчивается на Test).
+ */
+@Slf4j
+@AutoConfigureObservability(tracing = false) // В тестах экспорт метрик по умолчанию выключен
+@SpringBootTest(classes = HttpLoadHarness.LoadTestApplication.class,
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "spring.datasource.url=jdbc:h2:mem:load",
+                "spring.jpa.show-sql=false",
+                "rate-limit.enabled=false", // Все клиенты делят одного пользователя и один IP
+                "logging.level.root=WARN" // Логи запросов в консоль искажают задержки
+        })
+class HttpLoadHarness {
+
+    /**
+     * Приложение без учебных конфигураций безопасности (InMemory, JDBC, JPA с формой логина):
+     * они объявляют те же бины filterChain и passwordEncoder, что и основная JWT-конфигурация.
+     * Провайдер аутентификации из SecurityConfigJPA объявлен здесь же.
+     */
+    @SpringBootConfiguration
+    @EnableAutoConfiguration
+    @AutoConfigurationPackage(basePackageClasses = SpringBootGr61EApplication.class) // Репозитории и сущности
+    @ComponentScan(basePackageClasses = SpringBootGr61EApplication.class,
+            excludeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = {
+                    SpringBootGr61EApplication.class,
+                    SecurityConfigInMemory.class,
+                    SecurityConfigJDBC.class,
+                    SecurityConfigJPA.class}))
+    static class LoadTestApplication {
+
+        // Провайдер аутентификации по пользователям из базы, как в SecurityConfigJPA
+        @Bean
+        DaoAuthenticationProvider authenticationProvider(CustomUserDetailService customUserDetailService,
+                                                         PasswordEncoder passwordEncoder) {
+            DaoAuthenticationProvider authenticationProvider = new DaoAuthenticationProvider(customUserDetailService);
+            authenticationProvider.setPasswordEncoder(passwordEncoder);
+            return authenticationProvider;
+        }
+    }
+
+    private static final String USERNAME = "load";
+
+    private static final String PASSWORD = "load-password";
+
+    private static final int CATALOG_SIZE = 100;
+
+    private final int clients = Integer.getInteger("load.clients", 32);
+
+    // Клиенты делят несколько сессий: тысячи одновременных логинов упёрлись бы в BCrypt, а не в измеряемые эндпоинты
+    private final int sessions = Integer.getInteger("load.sessions", 16);
+
+    private final Duration duration = Duration.parse("PT" + System.getProperty("load.duration", "30s"));
+
+    private final Duration warmup = Duration.parse("PT" + System.getProperty("load.warmup", "5s"));
+
+    // Поведение заглушки внешнего API: healthy, failing или hung
+    private static final String UPSTREAM = System.getProperty("load.upstream", "healthy");
+
+    private static HttpServer upstream;
+
+    @LocalServerPort
+    private int port;
+
+    @LocalManagementPort
+    private int managementPort;
+
+    @Autowired
+    private AppUserRepository appUserRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private CarRepository carRepository;
+
+    @Autowired
+    private BankAccountRepository bankAccountRepository;
+
+    @Autowired
+    private PlayerRepository playerRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private final Map<String, Histogram> latencies = new ConcurrentHashMap<>();
+
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+    // Ответы 503 (очередь логинов или пул соединений заполнены) — ожидаемый отказ под перегрузкой, а не ошибка
+    private final Map<String, LongAdder> rejections = new ConcurrentHashMap<>();
+
+    private volatile boolean recording;
+
+    @DynamicPropertySource
+    static void upstreamProperties(DynamicPropertyRegistry registry) throws IOException {
+        upstream = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        upstream.createContext("/", exchange -> {
+            try {
+                switch (UPSTREAM) {
+                    case "healthy" -> Thread.sleep(20);
+                    case "failing" -> {
+                        exchange.sendResponseHeaders(500, -1);
+                        exchange.close();
+                        return;
+                    }
+                    case "hung" -> Thread.sleep(Duration.ofMinutes(1));
+                    default -> throw new IllegalArgumentException("Unknown load.upstream: " + UPSTREAM);
+                }
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = "ok".getBytes();
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        });
+        upstream.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        upstream.start();
+        registry.add("external.api.url", () -> "http://127.0.0.1:" + upstream.getAddress().getPort() + "/api");
+    }
+
+    @AfterAll
+    static void stopUpstream() {
+        upstream.stop(0);
+    }
+
+    @Test
+    void mixedWorkload() throws Exception {
+        List<Long> playerIds = prepareData();
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        List<String> tokens = new ArrayList<>();
+        for (int session = 0; session < Math.min(sessions, clients); session++) {
+            tokens.add(login(httpClient));
+        }
+
+        long deadline = System.nanoTime() + warmup.toNanos() + duration.toNanos();
+        List<Future<?>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int client = 0; client < clients; client++) {
+                String accountId = "load-" + client;
+                Long playerId = playerIds.get(client);
+                String token = tokens.get(client % tokens.size());
+                futures.add(executor.submit(() -> {
+                    runClient(httpClient, token, accountId, playerId, deadline);
+                    return null;
+                }));
+            }
+            TimeUnit.NANOSECONDS.sleep(warmup.toNanos());
+            latencies.values().forEach(Histogram::reset);
+            errors.values().forEach(LongAdder::reset);
+            rejections.values().forEach(LongAdder::reset);
+            ManagementFactory.getThreadMXBean().resetPeakThreadCount();
+            ManagementFactory.getMemoryPoolMXBeans().forEach(MemoryPoolMXBean::resetPeakUsage);
+            recording = true;
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+
+        report();
+        assertThat(latencies).containsKeys("GET /books", "GET /cars", "PUT /api/accounts/deposit",
+                "PUT /api/accounts/withdraw", "POST /casino/bet", "GET /call");
+        assertThat(errors.values()).allSatisfy(count -> assertThat(count.sum()).isZero());
+
+        // Метрики, накопленные за прогон, доступны без токена на локальном порту управления
+        HttpResponse<String> scrape = httpClient.send(HttpRequest.newBuilder(
+                URI.create("http://127.0.0.1:" + managementPort + "/actuator/prometheus")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertThat(scrape.statusCode()).isEqualTo(200);
+        assertThat(scrape.body()).contains("http_server_requests_seconds_bucket", "jwt_validate_seconds",
+                "spring_data_repository_invocations_seconds", "hikaricp_connections_active", "casino_bets_total",
+                "resilience4j_circuitbreaker_state", "external_api_fallbacks_total");
+    }
+
+    private List<Long> prepareData() {
+        appUserRepository.save(new AppUser(null, USERNAME, passwordEncoder.encode(PASSWORD), "USER"));
+        List<Book> books = new ArrayList<>();
+        List<Car> cars = new ArrayList<>();
+        for (int i = 0; i < CATALOG_SIZE; i++) {
+            books.add(new Book(String.format("%05d", i), "Book " + i, "Author " + i % 10, 1950 + i % 70));
+            cars.add(new Car(String.format("%05d", i), "Car " + i));
+        }
+        bookRepository.saveAll(books);
+        carRepository.saveAll(cars);
+
+        List<Long> playerIds = new ArrayList<>();
+        for (int client = 0; client < clients; client++) {
+            bankAccountRepository.save(new BankAccount("load-" + client, "Load Client " + client,
+                    new BigDecimal("1000.00"), null));
+            Player player = new Player();
+            player.setName("Load Player " + client);
+            player.setBalance(1_000_000);
+            playerIds.add(playerRepository.save(player).getId());
+        }
+        return playerIds;
+    }
+
+    private void runClient(HttpClient httpClient, String token, String accountId, Long playerId, long deadline)
+            throws Exception {
+        boolean deposit = true;
+        while (System.nanoTime() < deadline) {
+            int choice = ThreadLocalRandom.current().nextInt(100);
+            if (choice < 1) {
+                // Повторный логин одной попыткой: при отказе (503) клиент продолжает со старым токеном
+                HttpResponse<String> response = send(httpClient, "POST /auth/login", loginRequest());
+                if (response != null && response.statusCode() == 200) {
+                    token = response.body();
+                }
+            } else if (choice < 30) {
+                send(httpClient, "GET /books", get("/books?size=20", token));
+            } else if (choice < 55) {
+                send(httpClient, "GET /cars", get("/cars?size=20", token));
+            } else if (choice < 80) {
+                // Пополнение и снятие чередуются, поэтому баланс счёта не уходит в минус
+                String operation = deposit ? "deposit" : "withdraw";
+                send(httpClient, "PUT /api/accounts/" + operation,
+                        put("/api/accounts/" + accountId + "/" + operation + "?amount=1.00", token));
+                deposit = !deposit;
+            } else if (choice < 95) {
+                send(httpClient, "POST /casino/bet",
+                        post("/casino/bet?playerId=" + playerId + "&amount=1", token, HttpRequest.BodyPublishers.noBody()));
+            } else {
+                // При отказе внешнего API ответ — fallback с кодом 200
+                send(httpClient, "GET /call", get("/call", token));
+            }
+        }
+    }
+
+    private String login(HttpClient httpClient) throws Exception {
+        while (true) {
+            HttpResponse<String> response = send(httpClient, "POST /auth/login", loginRequest());
+            if (response != null && response.statusCode() == 200) {
+                return response.body();
+            }
+            // Очередь логинов заполнена или запрос не прошёл — ждём, как просит Retry-After
+            long retryAfter = response == null ? 1
+                    : response.headers().firstValueAsLong("Retry-After").orElse(1);
+            TimeUnit.SECONDS.sleep(retryAfter);
+        }
+    }
+
+    /**
+     * @return ответ или null, если запрос не удался (таймаут, обрыв соединения)
+     */
+    private HttpResponse<String> send(HttpClient httpClient, String endpoint, HttpRequest request) throws Exception {
+        long start = System.nanoTime();
+        HttpResponse<String> response;
+        try {
+            response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (IOException exception) {
+            if (recording) {
+                count(errors, endpoint, exception.toString());
+            }
+            return null;
+        }
+        long elapsed = System.nanoTime() - start;
+        if (recording) {
+            latencies.computeIfAbsent(endpoint, key -> new ConcurrentHistogram(3)).recordValue(elapsed);
+            if (response.statusCode() == 503) {
+                count(rejections, endpoint, null);
+            } else if (response.statusCode() >= 300) {
+                count(errors, endpoint, response.statusCode() + ": " + response.body());
+            }
+        }
+        return response;
+    }
+
+    private static void count(Map<String, LongAdder> counters, String endpoint, String firstMessage) {
+        LongAdder counter = counters.computeIfAbsent(endpoint, key -> new LongAdder());
+        if (counter.sum() == 0 && firstMessage != null) {
+            log.warn("{} failed with {}", endpoint, firstMessage);
+        }
+        counter.increment();
+    }
+
+    private HttpRequest loginRequest() {
+        String body = "{\"username\":\"" + USERNAME + "\",\"password\":\"" + PASSWORD + "\"}";
+        return post("/auth/login", null, HttpRequest.BodyPublishers.ofString(body));
+    }
+
+    private HttpRequest get(String path, String token) {
+        return request(path, token).GET().build();
+    }
+
+    private HttpRequest put(String path, String token) {
+        return request(path, token).PUT(HttpRequest.BodyPublishers.noBody()).build();
+    }
+
+    private HttpRequest post(String path, String token, HttpRequest.BodyPublisher body) {
+        return request(path, token).POST(body).header("Content-Type", "application/json").build();
+    }
+
+    private HttpRequest.Builder request(String path, String token) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .timeout(Duration.ofSeconds(30));
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder;
+    }
+
+    private void report() {
+        double seconds = duration.toNanos() / 1e9;
+        long peakHeap = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .mapToLong(pool -> pool.getPeakUsage().getUsed())
+                .sum();
+        StringBuilder report = new StringBuilder(String.format(
+                "%nLoad: %d virtual-thread clients, %s measured, server on %s threads%n" +
+                        "Peak JVM threads: %d, peak heap: %d MB%n",
+                clients, duration, virtualThreads ? "virtual" : "platform",
+                ManagementFactory.getThreadMXBean().getPeakThreadCount(), peakHeap / (1024 * 1024)));
+        report.append(String.format("%-28s %9s %7s %8s %9s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "errors", "503", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms"));
+        latencies.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(entry -> {
+                    Histogram histogram = entry.getValue();
+                    report.append(String.format("%-28s %9d %7d %8d %9.1f %9.2f %9.2f %9.2f %9.2f%n",
+                            entry.getKey(),
+                            histogram.getTotalCount(),
+                            sum(errors, entry.getKey()),
+                            sum(rejections, entry.getKey()),
+                            histogram.getTotalCount() / seconds,
+                            millis(histogram.getValueAtPercentile(50)),
+                            millis(histogram.getValueAtPercentile(99)),
+                            millis(histogram.getValueAtPercentile(99.9)),
+                            millis(histogram.getMaxValue())));
+                });
+        log.warn(report.toString()); // WARN — остальные логи в прогоне приглушены
+    }
+
+    private static long sum(Map<String, LongAdder> counters, String endpoint) {
+        LongAdder counter = counters.get(endpoint);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,67 @@
+package de.ait.javalessons.repository;
+
+import de.ait.javalessons.model.Bet;
+import de.ait.javalessons.model.BetHistoryEntry;
+import de.ait.javalessons.model.Player;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = "spring.jpa.show-sql=false")
+class BetRepositoryTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 12, 0);
+
+    @Autowired
+    private PlayerRepository playerRepository;
+
+    @Autowired
+    private BetRepository betRepository;
+
+    private Long playerId;
+
+    @BeforeEach
+    void setUp() {
+        Player player = new Player();
+        player.setName("Test Player");
+        player.setBalance(1000);
+        playerId = playerRepository.save(player).getId();
+
+        for (int minute = 0; minute < 5; minute++) {
+            Bet bet = new Bet();
+            bet.setAmount(10 + minute);
+            bet.setWin(minute % 2 == 0);
+            bet.setTimeOfBet(START.plusMinutes(minute));
+            bet.setPlayer(player);
+            betRepository.save(bet);
+        }
+    }
+
+    @Test
+    void historyShouldBePagedByTimeOfBetDescending() {
+        List<BetHistoryEntry> firstPage = betRepository.findHistory(playerId, Limit.of(2));
+        BetHistoryEntry last = firstPage.getLast();
+        List<BetHistoryEntry> secondPage = betRepository.findHistoryBefore(
+                playerId, last.getTimeOfBet(), last.getId(), Limit.of(2));
+
+        assertThat(firstPage).extracting(BetHistoryEntry::getAmount).containsExactly(14, 13);
+        assertThat(secondPage).extracting(BetHistoryEntry::getAmount).containsExactly(12, 11);
+        assertThat(secondPage).allMatch(entry -> entry.getPlayerId().equals(playerId));
+    }
+
+    @Test
+    void winnersShouldBePagedById() {
+        List<BetHistoryEntry> firstPage = betRepository.findWinnersAfter(0L, Limit.of(2));
+        List<BetHistoryEntry> secondPage = betRepository.findWinnersAfter(firstPage.getLast().getId(), Limit.of(2));
+
+        assertThat(firstPage).extracting(BetHistoryEntry::getAmount).containsExactly(10, 12);
+        assertThat(secondPage).extracting(BetHistoryEntry::getAmount).containsExactly(14);
+    }
+}
@@ -0,0 +1,89 @@
+package de.ait.javalessons.serice;
+
+import de.ait.javalessons.model.AppUser;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CachingUserDetailServiceTest {
+
+    private CustomUserDetailService customUserDetailService;
+
+    private CachingUserDetailService cachingUserDetailService;
+
+    @BeforeEach
+    void setUp() {
+        customUserDetailService = mock(CustomUserDetailService.class);
+        when(customUserDetailService.loadUserByUsername("admin"))
+                .thenReturn(User.withUsername("admin").password("secret").roles("ADMIN").build());
+        cachingUserDetailService = new CachingUserDetailService(
+                customUserDetailService, new SimpleMeterRegistry(), 100, Duration.ofMinutes(5));
+    }
+
+    @Test
+    void repeatedLookupShouldHitDatabaseOnce() {
+        UserDetails first = cachingUserDetailService.loadUserByUsername("admin");
+        UserDetails second = cachingUserDetailService.loadUserByUsername("admin");
+
+        assertThat(second).isSameAs(first);
+        verify(customUserDetailService, times(1)).loadUserByUsername("admin");
+    }
+
+    @Test
+    void evictShouldReloadUser() {
+        cachingUserDetailService.loadUserByUsername("admin");
+        cachingUserDetailService.evict("admin");
+        cachingUserDetailService.loadUserByUsername("admin");
+
+        verify(customUserDetailService, times(2)).loadUserByUsername("admin");
+    }
+
+    @Test
+    void loadOverlappingEvictShouldNotBeCached() {
+        // Пользователя меняют и сбрасывают из кэша, пока идёт загрузка старой строки
+        when(customUserDetailService.loadUserByUsername("user")).thenAnswer(invocation -> {
+            UserDetails stale = User.withUsername("user").password("old").roles("ADMIN").build();
+            cachingUserDetailService.evict("user");
+            return stale;
+        }).thenReturn(User.withUsername("user").password("new").roles("USER").build());
+
+        assertThat(cachingUserDetailService.loadUserByUsername("user").getPassword()).isEqualTo("old");
+        assertThat(cachingUserDetailService.loadUserByUsername("user").getPassword()).isEqualTo("new");
+        assertThat(cachingUserDetailService.loadUserByUsername("user").getPassword()).isEqualTo("new");
+        verify(customUserDetailService, times(2)).loadUserByUsername("user");
+    }
+
+    @Test
+    void listenerShouldEvictAgainAfterCommit() {
+        AppUser appUser = new AppUser();
+        appUser.setUsername("admin");
+        AppUserCacheListener listener = new AppUserCacheListener(new StaticListableBeanFactory(
+                Map.of("cachingUserDetailService", cachingUserDetailService)).getBeanProvider(CachingUserDetailService.class));
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            listener.evict(appUser);
+            // Запрос между flush и коммитом видит старую строку и кладёт её в кэш
+            cachingUserDetailService.loadUserByUsername("admin");
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        cachingUserDetailService.loadUserByUsername("admin");
+
+        verify(customUserDetailService, times(2)).loadUserByUsername("admin");
+    }
+}
@@ -0,0 +1,140 @@
+package de.ait.javalessons.service;
+
+import de.ait.javalessons.model.BankAccount;
+import de.ait.javalessons.model.Posting;
+import de.ait.javalessons.model.PostingResult;
+import de.ait.javalessons.repository.BankAccountRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@Slf4j
+@DataJpaTest(properties = "spring.jpa.show-sql=false")
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // Каждый поток работает в своей транзакции
+class BankAccountServiceTest {
+
+    private static final int THREADS = 16;
+
+    private static final int OPERATIONS_PER_THREAD = 100;
+
+    @Autowired
+    private BankAccountRepository bankAccountRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        bankAccountRepository.deleteAll();
+        bankAccountRepository.save(new BankAccount("hot", "Test Owner", new BigDecimal("1000.00"), null));
+    }
+
+    @ParameterizedTest
+    @EnumSource(BankAccountService.UpdateStrategy.class)
+    void concurrentDepositsAndWithdrawalsShouldKeepExactBalance(BankAccountService.UpdateStrategy strategy)
+            throws Exception {
+        BankAccountService service = new BankAccountService(bankAccountRepository, transactionManager, strategy, 10_000);
+        BigDecimal amount = new BigDecimal("0.10");
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            boolean depositing = thread % 2 == 0;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                    if (depositing) {
+                        service.deposit("hot", amount);
+                    } else {
+                        assertThat(service.withdraw("hot", amount).applied()).isTrue();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        long startNanos = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+        executor.shutdown();
+
+        int operations = THREADS * OPERATIONS_PER_THREAD;
+        log.info("{}: {} operations on one account in {} ms ({} ops/s)", strategy, operations,
+                elapsedNanos / 1_000_000, operations * 1_000_000_000L / elapsedNanos);
+
+        // Половина потоков пополняет, половина снимает — баланс должен вернуться ровно к исходному
+        BankAccount account = bankAccountRepository.findById("hot").orElseThrow();
+        assertThat(account.getBalance()).isEqualByComparingTo("1000.00");
+        assertThat(account.getVersion()).isEqualTo(operations);
+    }
+
+    @ParameterizedTest
+    @EnumSource(BankAccountService.UpdateStrategy.class)
+    void withdrawShouldNotOverdraw(BankAccountService.UpdateStrategy strategy) {
+        BankAccountService service = new BankAccountService(bankAccountRepository, transactionManager, strategy, 10);
+
+        BankAccountService.BalanceChange change = service.withdraw("hot", new BigDecimal("1000.01"));
+
+        assertThat(change.applied()).isFalse();
+        assertThat(change.account().getBalance()).isEqualByComparingTo("1000.00");
+    }
+
+    @ParameterizedTest
+    @EnumSource(BankAccountService.UpdateStrategy.class)
+    void unknownAccountShouldBeReportedAsNotFound(BankAccountService.UpdateStrategy strategy) {
+        BankAccountService service = new BankAccountService(bankAccountRepository, transactionManager, strategy, 10);
+
+        assertThatThrownBy(() -> service.deposit("missing", BigDecimal.TEN))
+                .isInstanceOf(NoSuchElementException.class)
+                .hasMessageContaining("missing");
+        assertThatThrownBy(() -> service.withdraw("missing", BigDecimal.TEN))
+                .isInstanceOf(NoSuchElementException.class);
+    }
+
+    @Test
+    void postingsShouldBeAppliedWithPerEntryResults() {
+        bankAccountRepository.save(new BankAccount("cold", "Other Owner", new BigDecimal("0.00"), null));
+        BankAccountService service = new BankAccountService(bankAccountRepository, transactionManager,
+                BankAccountService.UpdateStrategy.ATOMIC, 10);
+
+        List<PostingResult> results = service.applyPostings(List.of(
+                new Posting(Posting.Type.DEPOSIT, "hot", null, new BigDecimal("10.00")),
+                new Posting(Posting.Type.TRANSFER, "hot", "cold", new BigDecimal("500.00")),
+                new Posting(Posting.Type.WITHDRAW, "cold", null, new BigDecimal("600.00")),
+                new Posting(Posting.Type.WITHDRAW, "missing", null, new BigDecimal("1.00")),
+                new Posting(Posting.Type.WITHDRAW, "cold", null, new BigDecimal("-1.00"))
+        ));
+
+        assertThat(results).extracting(PostingResult::getStatus).containsExactly(
+                PostingResult.Status.APPLIED,
+                PostingResult.Status.APPLIED,
+                PostingResult.Status.REJECTED,
+                PostingResult.Status.REJECTED,
+                PostingResult.Status.REJECTED);
+        assertThat(bankAccountRepository.findById("hot").orElseThrow().getBalance()).isEqualByComparingTo("510.00");
+        assertThat(bankAccountRepository.findById("cold").orElseThrow().getBalance()).isEqualByComparingTo("500.00");
+    }
+}
@@ -0,0 +1,114 @@
+package de.ait.javalessons.service;
+
+import de.ait.javalessons.model.Player;
+import de.ait.javalessons.repository.BetRepository;
+import de.ait.javalessons.repository.PlayerRepository;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@Slf4j
+@DataJpaTest(properties = {
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import({BetPlacementService.class, ThreadLocalOutcomeGenerator.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // Каждая ставка коммитится отдельно, как в приложении
+class BetPlacementServiceTest {
+
+    private static final int MEASURED_BETS = 200;
+
+    private static final int EXISTING_BETS = 50_000;
+
+    @Autowired
+    private BetPlacementService betPlacementService;
+
+    @Autowired
+    private PlayerRepository playerRepository;
+
+    @Autowired
+    private BetRepository betRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Long playerId;
+
+    @BeforeEach
+    void setUp() {
+        betRepository.deleteAll();
+        playerRepository.deleteAll();
+        Player player = new Player();
+        player.setName("High Roller");
+        player.setBalance(1_000_000_000);
+        playerId = playerRepository.save(player).getId();
+    }
+
+    @Test
+    void betCostShouldNotGrowWithPlayersBetCount() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        placeBets(MEASURED_BETS); // Прогрев
+        long[] before = measure(statistics);
+
+        // Добавляем игроку десятки тысяч ставок одним SQL, в стороне от последовательности Hibernate
+        jdbcTemplate.update("insert into bet (id, amount, win, time_of_bet, player_id) " +
+                "select 1000000 + x, 1, false, current_timestamp, ? from system_range(1, ?)", playerId, EXISTING_BETS);
+        long[] after = measure(statistics);
+
+        log.info("placeBet with {} bets: {} us/bet; with {} more bets: {} us/bet",
+                MEASURED_BETS, before[1] / 1000, EXISTING_BETS, after[1] / 1000);
+
+        // Число SQL-операторов на ставку одинаково и не зависит от размера истории
+        assertThat(after[0]).isEqualTo(before[0]);
+        assertThat(statistics.getCollectionLoadCount()).isZero();
+    }
+
+    @Test
+    void betShouldNotOverdraw() {
+        jdbcTemplate.update("update player set balance = 5 where id = ?", playerId);
+
+        assertThat(betPlacementService.placeBet(playerId, 10))
+                .isEqualTo(BetEngine.BetOutcome.INSUFFICIENT_FUNDS);
+        assertThat(playerRepository.findById(playerId).orElseThrow().getBalance()).isEqualTo(5);
+        assertThat(betRepository.count()).isZero();
+    }
+
+    @Test
+    void betForUnknownPlayerShouldFail() {
+        assertThatThrownBy(() -> betPlacementService.placeBet(-1L, 10))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * @return {количество SQL-операторов на MEASURED_BETS ставок, среднее время ставки в наносекундах}
+     */
+    private long[] measure(Statistics statistics) {
+        statistics.clear();
+        long start = System.nanoTime();
+        placeBets(MEASURED_BETS);
+        long elapsed = System.nanoTime() - start;
+        return new long[]{statistics.getPrepareStatementCount(), elapsed / MEASURED_BETS};
+    }
+
+    private void placeBets(int count) {
+        for (int i = 0; i < count; i++) {
+            betPlacementService.placeBet(playerId, 1);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package de.ait.javalessons.service;
+
+import de.ait.javalessons.config.CatalogTest;
+import de.ait.javalessons.model.Book;
+import de.ait.javalessons.model.EntityVersion;
+import de.ait.javalessons.repository.BookRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Поисковый индекс книг: построение из базы, поиск и обновление через слушатель сущности после коммита.
+ */
+@CatalogTest
+class BookSearchIndexTest {
+
+    @Autowired
+    private BookSearchIndex bookSearchIndex;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @BeforeEach
+    void setUp() {
+        bookRepository.saveAll(List.of(
+                new Book("1", "Clean Code", "Robert C. Martin", 2008),
+                new Book("2", "The Clean Coder", "Robert C. Martin", 2011),
+                new Book("3", "Refactoring", "Martin Fowler", 1999),
+                new Book("4", "Cien años de soledad", "Gabriel García Márquez", 1967),
+                new Book("5", "Effective Java", "Joshua Bloch", 2018)));
+        bookSearchIndex.rebuild();
+    }
+
+    @AfterEach
+    void tearDown() {
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    void rebuildShouldIndexAllBooks() {
+        assertThat(bookSearchIndex.size()).isEqualTo(5);
+    }
+
+    @Test
+    void exactWordShouldRankAbovePrefix() {
+        // "clean" — слово в обеих книгах; "code" — целое слово в "Clean Code" и начало слова в "Coder"
+        assertThat(ids("clean code")).containsExactly("1", "2");
+    }
+
+    @Test
+    void titleMatchShouldRankAboveAuthorMatch() {
+        // "martin": автор книг 1 и 2 и автор книги 3; "refactoring" в названии поднимает книгу 3
+        assertThat(ids("martin refactoring")).containsExactly("3");
+        assertThat(ids("martin")).containsExactly("1", "3", "2");
+    }
+
+    @Test
+    void searchShouldIgnoreCaseAndDiacritics() {
+        assertThat(ids("MARQUEZ anos")).containsExactly("4");
+        assertThat(ids("garcía")).containsExactly("4");
+    }
+
+    @Test
+    void allWordsShouldMatch() {
+        assertThat(ids("clean java")).isEmpty();
+        assertThat(ids("  ,.  ")).isEmpty();
+        assertThat(ids("j")).isEmpty(); // Одна буква — только целое слово
+        assertThat(ids("ja")).containsExactly("5");
+    }
+
+    @Test
+    void limitShouldCutLowerRankedBooks() {
+        assertThat(bookSearchIndex.search("martin", 1)).extracting(Book::getId).containsExactly("1");
+        // Равные по весу книги отбираются по названию, а не по порядку в индексе: limit только обрезает список
+        assertThat(bookSearchIndex.search("martin", 2)).extracting(Book::getId).containsExactly("1", "3");
+    }
+
+    @Test
+    void titleKeyShouldKeepStringOrder() {
+        // Различные ключи обязаны упорядочиваться как строки; равные ключи сравниваются строками целиком
+        assertThat(Long.compareUnsigned(BookSearchIndex.titleKey("Clean"), BookSearchIndex.titleKey("Refactoring")))
+                .isNegative();
+        assertThat(Long.compareUnsigned(BookSearchIndex.titleKey("Cie"), BookSearchIndex.titleKey("Clean")))
+                .isNegative();
+        assertThat(Long.compareUnsigned(BookSearchIndex.titleKey("Я"), BookSearchIndex.titleKey("a"))).isPositive();
+        assertThat(BookSearchIndex.titleKey("Clean Code")).isEqualTo(BookSearchIndex.titleKey("Clean Coder"));
+        assertThat(BookSearchIndex.titleKey(null)).isEqualTo(-1L);
+    }
+
+    @Test
+    void wordMatchShouldCompareWholeWordsAndPrefixes() {
+        // Проверка текста вместо раскрытия префикса: должна совпадать с разбиением на слова при индексации
+        assertThat(BookSearchIndex.wordMatch("Cien años de soledad", "anos")).isEqualTo(2);
+        assertThat(BookSearchIndex.wordMatch("Refactoring, 2nd Edition", "edit")).isEqualTo(1);
+        assertThat(BookSearchIndex.wordMatch("Refactoring, 2nd Edition", "factor")).isZero();
+        assertThat(BookSearchIndex.wordMatch("Effective Java", "eff")).isEqualTo(1);
+        assertThat(BookSearchIndex.wordMatch(null, "java")).isZero();
+    }
+
+    @Test
+    void saveAndDeleteShouldUpdateIndexAfterCommit() {
+        Book book = bookRepository.findById("5").orElseThrow();
+        book.setTitle("Java Concurrency in Practice");
+        bookRepository.save(book);
+        bookRepository.save(new Book("6", "Java Puzzlers", "Joshua Bloch", 2005));
+        bookRepository.deleteById("3");
+
+        assertThat(ids("effective")).isEmpty();
+        assertThat(ids("java")).containsExactlyInAnyOrder("5", "6");
+        assertThat(ids("refactoring")).isEmpty();
+        assertThat(bookSearchIndex.size()).isEqualTo(5);
+    }
+
+    @Test
+    void olderVersionShouldNotReplaceNewerOne() {
+        Book newer = new Book("5", "Effective Java, 3rd Edition", "Joshua Bloch", 2018);
+        newer.setVersion(2L);
+        Book older = new Book("5", "Effective Java, 2nd Edition", "Joshua Bloch", 2008);
+        older.setVersion(1L);
+
+        // Изменения пришли после коммита в обратном порядке
+        bookSearchIndex.put(newer);
+        bookSearchIndex.put(older);
+
+        assertThat(ids("3rd")).containsExactly("5");
+        assertThat(ids("2nd")).isEmpty();
+    }
+
+    @Test
+    void putCommittedBeforeRemoveShouldNotRestoreBook() {
+        Instant updatedAt = EntityVersion.now().minusSeconds(1);
+        Book stale = new Book("5", "Effective Java, 2nd Edition", "Joshua Bloch", 2008);
+        stale.setVersion(1L);
+        stale.setLastModified(updatedAt);
+
+        // Изменение версии 1 закоммичено раньше удаления, но после коммита пришло позже
+        bookSearchIndex.remove("5", 1L);
+        bookSearchIndex.put(stale);
+
+        assertThat(ids("java")).isEmpty();
+
+        // Книга, созданная заново, снова с версией 0, но изменена позже удаления
+        Book recreated = new Book("5", "Effective Java, 3rd Edition", "Joshua Bloch", 2018);
+        recreated.setVersion(0L);
+        recreated.setLastModified(EntityVersion.now().plusSeconds(1));
+        bookSearchIndex.put(recreated);
+
+        assertThat(ids("java")).containsExactly("5");
+    }
+
+    @Test
+    void rebuildShouldKeepChangesMadeWhileReading() {
+        BookRepository repository = mock(BookRepository.class);
+        BookSearchIndex index = new BookSearchIndex(repository, mock(EntityManager.class),
+                mock(PlatformTransactionManager.class), new SimpleMeterRegistry());
+        index.put(new Book("1", "Clean Code", "Robert C. Martin", 2008));
+        Book stale = new Book("2", "Refactoring", "Martin Fowler", 1999);
+        stale.setVersion(1L);
+        Book updated = new Book("2", "Refactoring, 2nd Edition", "Martin Fowler", 2018);
+        updated.setVersion(2L);
+        when(repository.streamAll()).thenReturn(Stream.of(stale, new Book("3", "Effective Java", "Joshua Bloch", 2018))
+                .peek(book -> {
+                    if (book.getId().equals("3")) {
+                        // Пока таблица читается, поиск отвечает по прежнему индексу
+                        assertThat(index.search("clean", 10)).extracting(Book::getId).containsExactly("1");
+                        // Изменения, закоммиченные во время чтения: снимок их уже не увидит
+                        index.put(updated);
+                        index.remove("3", 0L);
+                    }
+                }));
+
+        index.rebuild();
+
+        assertThat(index.search("edition", 10)).extracting(Book::getId).containsExactly("2");
+        assertThat(index.search("java", 10)).isEmpty();
+        assertThat(index.search("clean", 10)).isEmpty();
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    private List<String> ids(String query) {
+        return bookSearchIndex.search(query, 10).stream().map(Book::getId).toList();
+    }
+}
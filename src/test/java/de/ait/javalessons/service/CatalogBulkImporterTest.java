@@ -0,0 +1,144 @@
+package de.ait.javalessons.service;
+
+import de.ait.javalessons.config.CatalogTest;
+import de.ait.javalessons.model.Book;
+import de.ait.javalessons.model.BulkImportResult;
+import de.ait.javalessons.model.Car;
+import de.ait.javalessons.repository.BookRepository;
+import de.ait.javalessons.repository.CarRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Массовая загрузка книг и машин: порции по 2 строки, чтобы проверить границы порций.
+ * Без общей тестовой транзакции: каждая порция фиксируется, как в приложении.
+ */
+@CatalogTest
+@TestPropertySource(properties = "catalog.bulk.chunk-size=2")
+class CatalogBulkImporterTest {
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private CarRepository carRepository;
+
+    @Autowired
+    private BookSearchIndex bookSearchIndex;
+
+    @Autowired
+    private CatalogBulkImporter catalogBulkImporter;
+
+    @BeforeEach
+    void setUp() {
+        bookRepository.save(new Book("1", "Clean Code", "Robert C. Martin", 2008));
+    }
+
+    @AfterEach
+    void tearDown() {
+        bookRepository.deleteAll();
+        carRepository.deleteAll();
+    }
+
+    @Test
+    void jsonArrayShouldInsertValidRowsAndReportRejectedOnes() throws Exception {
+        BulkImportResult result = catalogBulkImporter.importBooks(body("""
+                [
+                  {"id": "2", "title": "1984", "author": "George Orwell", "publishYear": 1949},
+                  {"id": "3", "title": "", "author": "Joshua Bloch", "publishYear": 2018},
+                  {"id": "4", "title": "Refactoring", "author": "Martin Fowler", "publishYear": 1999},
+                  {"id": "2", "title": "Animal Farm", "author": "George Orwell", "publishYear": 1945},
+                  {"id": "1", "title": "Clean Code", "author": "Robert C. Martin", "publishYear": 2008}
+                ]"""));
+
+        assertThat(result.getReceived()).isEqualTo(5);
+        assertThat(result.getInserted()).isEqualTo(2);
+        assertThat(result.getFailed()).isEqualTo(3);
+        assertThat(result.getErrors()).extracting(BulkImportResult.RowError::getRow).containsExactly(2L, 4L, 5L);
+        assertThat(result.getErrors().get(0).getMessage()).startsWith("title:");
+        assertThat(result.getErrors().get(1).getMessage()).isEqualTo("Already exists");
+
+        // Добавленные строки читаются через JPA с версией и временем изменения
+        Book book = bookRepository.findById("4").orElseThrow();
+        assertThat(book.getTitle()).isEqualTo("Refactoring");
+        assertThat(book.getVersion()).isZero();
+        assertThat(book.getLastModified()).isNotNull();
+        assertThat(bookRepository.findById("2")).map(Book::getTitle).contains("1984");
+        assertThat(bookSearchIndex.search("refact", 10)).extracting(Book::getId).containsExactly("4");
+    }
+
+    @Test
+    void ndjsonShouldSkipMistypedRowAndRejectDuplicateInChunk() throws Exception {
+        BulkImportResult result = catalogBulkImporter.importCars(body("""
+                {"id": "1", "name": "Audi A4"}
+                {"id": "2", "name": "BMW M5", "unknown": {"nested": [1, 2]}}
+                {"id": "3", "name": ["not", "a", "string"]}
+                {"id": "4", "name": "Kia XCEED"}
+                {"id": "4", "name": "Mazda 6"}
+                """));
+
+        assertThat(result.getReceived()).isEqualTo(5);
+        assertThat(result.getInserted()).isEqualTo(3);
+        assertThat(result.getErrors()).extracting(BulkImportResult.RowError::getRow).containsExactly(3L, 5L);
+        assertThat(result.getErrors().get(0).getMessage()).startsWith("Invalid row:");
+        assertThat(result.getErrors().get(1).getMessage()).isEqualTo("Duplicate id in request");
+        assertThat(carRepository.findById("4")).map(Car::getName).contains("Kia XCEED");
+    }
+
+    @Test
+    void malformedJsonShouldStopAndKeepPrecedingRows() throws Exception {
+        BulkImportResult result = catalogBulkImporter.importCars(body("""
+                [{"id": "1", "name": "Audi A4"}, {"id": "2", "name": "BMW M5"}, {"id": "3", "name": """));
+
+        assertThat(result.getReceived()).isEqualTo(2);
+        assertThat(result.getInserted()).isEqualTo(2);
+        assertThat(result.getFailed()).isZero();
+        assertThat(result.getErrors()).isEmpty();
+        assertThat(result.getParseError()).startsWith("Malformed JSON at line 1, column");
+        assertThat(carRepository.count()).isEqualTo(2);
+    }
+
+    @Test
+    void largeStreamShouldBeInsertedInChunks() throws Exception {
+        int rows = 5_000;
+        // Тело генерируется по строке во время чтения, целиком в памяти его нет ни у теста, ни у загрузчика
+        Iterator<InputStream> lines = IntStream.range(0, rows)
+                .mapToObj(i -> body("{\"id\": \"car-" + i + "\", \"name\": \"Car " + i + "\"}\n"))
+                .iterator();
+        Enumeration<InputStream> enumeration = new Enumeration<>() {
+            @Override
+            public boolean hasMoreElements() {
+                return lines.hasNext();
+            }
+
+            @Override
+            public InputStream nextElement() {
+                return lines.next();
+            }
+        };
+
+        BulkImportResult result = catalogBulkImporter.importCars(new SequenceInputStream(enumeration));
+
+        assertThat(result.getInserted()).isEqualTo(rows);
+        assertThat(result.getErrors()).isEmpty();
+        assertThat(result.getParseError()).isNull();
+        assertThat(carRepository.count()).isEqualTo(rows);
+    }
+
+    private static InputStream body(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
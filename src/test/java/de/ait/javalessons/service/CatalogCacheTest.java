@@ -0,0 +1,133 @@
+package de.ait.javalessons.service;
+
+import de.ait.javalessons.config.CatalogTest;
+import de.ait.javalessons.model.Book;
+import de.ait.javalessons.model.Car;
+import de.ait.javalessons.repository.BookRepository;
+import de.ait.javalessons.repository.CarRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * CatalogCache с настоящими репозиториями: число SQL-запросов считается через статистику Hibernate.
+ * Без общей тестовой транзакции: сохранения фиксируются, как в приложении, и сброс кэша после коммита тоже проверяется.
+ */
+@CatalogTest
+class CatalogCacheTest {
+
+    @Autowired
+    private CatalogCache catalogCache;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private CarRepository carRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        bookRepository.save(new Book("1", "Clean Code", "Robert C. Martin", 2008));
+        carRepository.save(new Car("1", "Audi A4"));
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        bookRepository.deleteAll();
+        carRepository.deleteAll();
+    }
+
+    @Test
+    void repeatedReadsShouldCostOneQuery() {
+        double hits = bookGets("hit");
+        double misses = bookGets("miss");
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(catalogCache.findBook("1")).get().extracting(Book::getTitle).isEqualTo("Clean Code");
+            assertThat(catalogCache.findCar("1")).get().extracting(Car::getName).isEqualTo("Audi A4");
+        }
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(bookGets("hit") - hits).isEqualTo(9);
+        assertThat(bookGets("miss") - misses).isEqualTo(1);
+    }
+
+    @Test
+    void missingIdShouldNotBeCached() {
+        assertThat(catalogCache.findBook("2")).isEmpty();
+
+        bookRepository.save(new Book("2", "1984", "George Orwell", 1949));
+
+        assertThat(catalogCache.findBook("2")).isPresent();
+    }
+
+    @Test
+    void updateShouldEvictEntry() {
+        catalogCache.findBook("1");
+        catalogCache.findCar("1");
+
+        Book book = bookRepository.findById("1").orElseThrow();
+        book.setTitle("Clean Code, 2nd Edition");
+        bookRepository.save(book);
+        Car car = carRepository.findById("1").orElseThrow();
+        car.setName("Audi A6");
+        carRepository.save(car);
+
+        assertThat(catalogCache.findBook("1")).get().extracting(Book::getTitle).isEqualTo("Clean Code, 2nd Edition");
+        assertThat(catalogCache.findCar("1")).get().extracting(Car::getName).isEqualTo("Audi A6");
+    }
+
+    @Test
+    void deleteShouldEvictEntry() {
+        catalogCache.findBook("1");
+        catalogCache.findCar("1");
+
+        bookRepository.deleteById("1");
+        carRepository.deleteById("1");
+
+        assertThat(catalogCache.findBook("1")).isEmpty();
+        assertThat(catalogCache.findCar("1")).isEmpty();
+    }
+
+    @Test
+    void readOverlappingEvictShouldNotBeCached() {
+        BookRepository slowRepository = mock(BookRepository.class);
+        CatalogCache cache = new CatalogCache(slowRepository, carRepository, new SimpleMeterRegistry(), 100,
+                Duration.ofMinutes(10));
+        // Чтение старой строки завершается уже после сброса, выполненного после коммита
+        when(slowRepository.findById("1")).thenAnswer(invocation -> {
+            cache.evictBook("1");
+            return Optional.of(new Book("1", "Clean Code", "Robert C. Martin", 2008));
+        }).thenReturn(Optional.of(new Book("1", "Clean Code, 2nd Edition", "Robert C. Martin", 2008)));
+
+        assertThat(cache.findBook("1")).get().extracting(Book::getTitle).isEqualTo("Clean Code");
+        assertThat(cache.findBook("1")).get().extracting(Book::getTitle).isEqualTo("Clean Code, 2nd Edition");
+        assertThat(cache.findBook("1")).get().extracting(Book::getTitle).isEqualTo("Clean Code, 2nd Edition");
+        verify(slowRepository, times(2)).findById("1");
+    }
+
+    // Контекст и реестр метрик общие для всех тестов класса
+    private double bookGets(String result) {
+        return meterRegistry.get("cache.gets").tag("cache", "books").tag("result", result).functionCounter().count();
+    }
+}
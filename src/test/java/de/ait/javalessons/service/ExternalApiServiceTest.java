@@ -0,0 +1,354 @@
+package de.ait.javalessons.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import de.ait.javalessons.config.AppConfig;
+import de.ait.javalessons.properties.ExternalApiProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * ExternalApiService против локального HTTP-сервера-заглушки: пул соединений, таймауты, кэш ответов,
+ * предохранитель и bulkhead.
+ */
+class ExternalApiServiceTest {
+
+    private HttpServer server;
+
+    // Порты клиента, с которых приходили запросы: по ним видно, переиспользуются ли соединения
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+
+    // Пока защёлка не открыта, /slow не отвечает
+    private final CountDownLatch releaseSlow = new CountDownLatch(1);
+
+    private CloseableHttpClient httpClient;
+
+    private ExternalApiService externalApiService;
+
+    private ExternalApiProperties properties;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    // Число запросов к /counter; ответ — номер запроса
+    private final AtomicInteger counterCalls = new AtomicInteger();
+
+    // Задержка ответа /counter в миллисекундах
+    private volatile long counterDelayMillis;
+
+    // Пока true, /counter отвечает 500
+    private volatile boolean counterFailing;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api", exchange -> respond(exchange, "ok"));
+        server.createContext("/counter", exchange -> {
+            int call = counterCalls.incrementAndGet();
+            try {
+                Thread.sleep(counterDelayMillis);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+            if (counterFailing) {
+                exchange.sendResponseHeaders(500, -1);
+                exchange.close();
+                return;
+            }
+            respond(exchange, "v" + call);
+        });
+        server.createContext("/slow", exchange -> {
+            try {
+                releaseSlow.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+            respond(exchange, "slow");
+        });
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+
+        properties = new ExternalApiProperties();
+        properties.setUrl(baseUrl() + "/api");
+        properties.setTimeout(Duration.ofMillis(300));
+        properties.setConnectTimeout(Duration.ofMillis(300));
+        properties.setPoolTimeout(Duration.ofMillis(100));
+        properties.setMaxConnectionsPerHost(2);
+        properties.setCacheTtl(Duration.ZERO); // Проверки HTTP-клиента — без кэша
+        properties.setFallback("fallback");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        releaseSlow.countDown();
+        if (externalApiService != null) {
+            externalApiService.shutdown();
+        }
+        if (httpClient != null) {
+            httpClient.close();
+        }
+        server.stop(0);
+    }
+
+    @Test
+    void callsShouldReuseKeepAliveConnection() {
+        ExternalApiService service = service();
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(service.callExternalApi()).isEqualTo("ok");
+        }
+
+        assertThat(clientPorts).hasSize(1);
+    }
+
+    @Test
+    void slowUpstreamShouldTimeOut() {
+        properties.setUrl(baseUrl() + "/slow");
+        ExternalApiService service = service();
+
+        long start = System.nanoTime();
+        assertThat(service.callExternalApi()).isEqualTo("fallback");
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(2));
+        assertThat(fallbacks("unavailable")).isEqualTo(1);
+    }
+
+    @Test
+    void hungUpstreamShouldHoldAtMostMaxConnectionsPerHostThreads() throws Exception {
+        properties.setUrl(baseUrl() + "/slow");
+        properties.setTimeout(Duration.ofSeconds(10)); // Зависшие запросы не отпускают соединения сами
+        ExternalApiService service = service();
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        executor.submit(service::callExternalApi);
+        executor.submit(service::callExternalApi);
+        Thread.sleep(300); // Оба соединения пула заняты
+
+        // Третий вызов не ждёт зависший сервис, а быстро получает отказ по pool-timeout
+        long start = System.nanoTime();
+        assertThat(service.callExternalApi()).isEqualTo("fallback");
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(1));
+        assertThat(fallbacks("unavailable")).isEqualTo(1);
+
+        releaseSlow.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void concurrentMissesShouldProduceOneUpstreamCall() throws Exception {
+        properties.setUrl(baseUrl() + "/counter");
+        properties.setCacheTtl(Duration.ofMinutes(1));
+        properties.setTimeout(Duration.ofSeconds(2));
+        properties.setMaxConnectionsPerHost(50);
+        properties.setBulkheadMaxConcurrentCalls(50);
+        counterDelayMillis = 300;
+        ExternalApiService service = service();
+
+        List<Future<String>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 50; i++) {
+                futures.add(executor.submit(service::callExternalApi));
+            }
+        }
+
+        for (Future<String> future : futures) {
+            assertThat(future.get()).isEqualTo("v1");
+        }
+        assertThat(counterCalls.get()).isEqualTo(1);
+        assertThat(service.callExternalApi()).isEqualTo("v1");
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "external.api").tag("result", "hit")
+                .functionCounter().count()).isGreaterThanOrEqualTo(1);
+        assertThat(meterRegistry.get("external.api.upstream").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void staleValueShouldBeServedWhileRevalidating() throws Exception {
+        properties.setUrl(baseUrl() + "/counter");
+        properties.setCacheTtl(Duration.ofMillis(100));
+        properties.setCacheStaleTtl(Duration.ofMinutes(1));
+        properties.setTimeout(Duration.ofSeconds(2));
+        ExternalApiService service = service();
+
+        assertThat(service.callExternalApi()).isEqualTo("v1");
+        Thread.sleep(150);
+        counterDelayMillis = 500; // Обновление медленное, но вызывающий его не ждёт
+
+        long start = System.nanoTime();
+        assertThat(service.callExternalApi()).isEqualTo("v1");
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(300));
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!service.callExternalApi().equals("v2") && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(service.callExternalApi()).isEqualTo("v2");
+        assertThat(counterCalls.get()).isEqualTo(2);
+    }
+
+    @Test
+    void failedLoadShouldNotBeCached() {
+        properties.setUrl(baseUrl() + "/counter");
+        properties.setCacheTtl(Duration.ofMinutes(1));
+        counterFailing = true;
+        ExternalApiService service = service();
+
+        assertThat(service.callExternalApi()).isEqualTo("fallback");
+
+        counterFailing = false;
+        assertThat(service.callExternalApi()).isEqualTo("v2");
+    }
+
+    @Test
+    void failedRefreshShouldKeepStaleValue() throws Exception {
+        properties.setUrl(baseUrl() + "/counter");
+        properties.setCacheTtl(Duration.ofMillis(100));
+        properties.setCacheStaleTtl(Duration.ofMinutes(1));
+        ExternalApiService service = service();
+
+        assertThat(service.callExternalApi()).isEqualTo("v1");
+        counterFailing = true;
+        Thread.sleep(150);
+
+        assertThat(service.callExternalApi()).isEqualTo("v1"); // Запускает фоновое обновление
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (counterCalls.get() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        Thread.sleep(50);
+
+        assertThat(service.callExternalApi()).isEqualTo("v1");
+        assertThat(fallbacks("unavailable")).isZero();
+    }
+
+    @Test
+    void failuresShouldOpenCircuitAndSkipUpstreamUntilProbeSucceeds() throws Exception {
+        properties.setUrl(baseUrl() + "/counter");
+        properties.setCircuitWindowSize(4);
+        properties.setCircuitMinimumCalls(4);
+        properties.setCircuitOpenDuration(Duration.ofMillis(200));
+        properties.setCircuitHalfOpenCalls(1);
+        counterFailing = true;
+        ExternalApiService service = service();
+
+        for (int i = 0; i < 4; i++) {
+            assertThat(service.callExternalApi()).isEqualTo("fallback");
+        }
+        assertThat(circuitState("open")).isEqualTo(1);
+
+        // Цепь разомкнута: внешний API не вызывается, ответ — fallback
+        for (int i = 0; i < 10; i++) {
+            assertThat(service.callExternalApi()).isEqualTo("fallback");
+        }
+        assertThat(counterCalls.get()).isEqualTo(4);
+        assertThat(fallbacks("unavailable")).isEqualTo(14);
+
+        // После circuit-open-duration пробный вызов проходит, и цепь снова замыкается
+        Thread.sleep(250);
+        counterFailing = false;
+        assertThat(service.callExternalApi()).isEqualTo("v5");
+        assertThat(circuitState("closed")).isEqualTo(1);
+        assertThat(transitions("closed", "open")).isEqualTo(1);
+        assertThat(transitions("open", "half_open")).isEqualTo(1);
+        assertThat(transitions("half_open", "closed")).isEqualTo(1);
+    }
+
+    @Test
+    void slowCallsShouldOpenCircuit() {
+        properties.setUrl(baseUrl() + "/counter");
+        properties.setCircuitWindowSize(4);
+        properties.setCircuitMinimumCalls(4);
+        properties.setCircuitSlowCallDuration(Duration.ofMillis(50));
+        counterDelayMillis = 100; // Ответ успешный, но медленный
+        ExternalApiService service = service();
+
+        for (int i = 0; i < 4; i++) {
+            assertThat(service.callExternalApi()).isEqualTo("v" + (i + 1));
+        }
+
+        assertThat(circuitState("open")).isEqualTo(1);
+        assertThat(service.callExternalApi()).isEqualTo("fallback");
+        assertThat(counterCalls.get()).isEqualTo(4);
+    }
+
+    @Test
+    void bulkheadShouldRejectCallsBeyondLimitWithoutWaiting() throws Exception {
+        properties.setUrl(baseUrl() + "/slow");
+        properties.setTimeout(Duration.ofSeconds(10));
+        properties.setMaxConnectionsPerHost(50);
+        properties.setBulkheadMaxConcurrentCalls(2);
+        ExternalApiService service = service();
+
+        List<Future<String>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 20; i++) {
+                futures.add(executor.submit(service::callExternalApi));
+            }
+            Thread.sleep(300);
+
+            // Пока внешний API висит, 18 вызовов из 20 уже получили fallback, а к API ушли только 2
+            assertThat(futures.stream().filter(Future::isDone).count()).isEqualTo(18);
+            assertThat(fallbacks("bulkhead_full")).isEqualTo(18);
+            assertThat(clientPorts).isEmpty();
+            releaseSlow.countDown();
+        }
+
+        assertThat(futures.stream().filter(future -> future.resultNow().equals("slow")).count()).isEqualTo(2);
+        assertThat(clientPorts).hasSize(2);
+    }
+
+    private ExternalApiService service() {
+        AppConfig appConfig = new AppConfig();
+        httpClient = appConfig.externalApiHttpClient(properties, meterRegistry);
+        externalApiService = new ExternalApiService(appConfig.restTemplate(new RestTemplateBuilder(), httpClient), properties,
+                meterRegistry);
+        return externalApiService;
+    }
+
+    private double fallbacks(String reason) {
+        return meterRegistry.get("external.api.fallbacks").tag("reason", reason).counter().count();
+    }
+
+    private double circuitState(String state) {
+        return meterRegistry.get("resilience4j.circuitbreaker.state").tag("name", "external.api")
+                .tag("state", state).gauge().value();
+    }
+
+    private double transitions(String from, String to) {
+        return meterRegistry.get("external.api.circuit.transitions").tag("from", from).tag("to", to)
+                .counter().count();
+    }
+
+    private String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    private void respond(HttpExchange exchange, String body) throws IOException {
+        clientPorts.add(exchange.getRemoteAddress().getPort());
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package de.ait.javalessons.service;
+
+import de.ait.javalessons.model.Bet;
+import de.ait.javalessons.model.Player;
+import de.ait.javalessons.repository.BetRepository;
+import de.ait.javalessons.repository.PlayerRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@Slf4j
+@DataJpaTest(properties = "spring.jpa.show-sql=false")
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // Фоновый поток пишет в своих транзакциях
+class InMemoryBetEngineTest {
+
+    private static final int THREADS = 8;
+
+    private static final int BETS_PER_THREAD = 500;
+
+    private static final int INITIAL_BALANCE = 1_000_000;
+
+    @Autowired
+    private PlayerRepository playerRepository;
+
+    @Autowired
+    private BetRepository betRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Long playerId;
+
+    @BeforeEach
+    void setUp() {
+        betRepository.deleteAll();
+        playerRepository.deleteAll();
+        Player player = new Player();
+        player.setName("High Roller");
+        player.setBalance(INITIAL_BALANCE);
+        playerId = playerRepository.save(player).getId();
+    }
+
+    @Test
+    void shutdownShouldDrainQueueAndPersistExactBalance() throws Exception {
+        InMemoryBetEngine engine = new InMemoryBetEngine(playerRepository, betRepository, entityManager,
+                transactionManager, new ThreadLocalOutcomeGenerator(), new SimpleMeterRegistry(),
+                10_000, 200, Duration.ofMillis(50), Duration.ofSeconds(1), Duration.ofSeconds(5));
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int thread = 0; thread < THREADS; thread++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < BETS_PER_THREAD; i++) {
+                    engine.placeBet(playerId, 10);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsed = System.nanoTime() - start;
+        executor.shutdown();
+        engine.shutdown();
+
+        int total = THREADS * BETS_PER_THREAD;
+        log.info("In-memory engine: {} bets in {} ms ({} bets/s)",
+                total, elapsed / 1_000_000, total * 1_000_000_000L / elapsed);
+
+        // Все ставки записаны, баланс в базе совпадает с суммой ставок и выигрышей
+        List<Bet> bets = new ArrayList<>();
+        betRepository.findAll().forEach(bets::add);
+        int expectedBalance = INITIAL_BALANCE;
+        for (Bet bet : bets) {
+            expectedBalance += bet.isWin() ? bet.getAmount() : -bet.getAmount();
+        }
+        assertThat(bets).hasSize(total);
+        assertThat(playerRepository.findById(playerId).orElseThrow().getBalance()).isEqualTo(expectedBalance);
+    }
+
+    @Test
+    void betShouldNotOverdraw() throws Exception {
+        InMemoryBetEngine engine = new InMemoryBetEngine(playerRepository, betRepository, entityManager,
+                transactionManager, new SeededOutcomeGenerator(42), new SimpleMeterRegistry(),
+                100, 10, Duration.ofMillis(50), Duration.ofSeconds(1), Duration.ofSeconds(5));
+
+        assertThat(engine.placeBet(playerId, INITIAL_BALANCE + 1)).isEqualTo(BetEngine.BetOutcome.INSUFFICIENT_FUNDS);
+        engine.shutdown();
+
+        assertThat(betRepository.count()).isZero();
+    }
+
+    @Test
+    void fullQueueShouldRejectBetAndRestoreBalance() throws Exception {
+        // Порог пакета и таймер недостижимы: первая ставка занимает единственное место в очереди до остановки
+        InMemoryBetEngine engine = new InMemoryBetEngine(playerRepository, betRepository, entityManager,
+                transactionManager, new SeededOutcomeGenerator(42), new SimpleMeterRegistry(),
+                1, 10, Duration.ofMinutes(1), Duration.ofMillis(100), Duration.ofSeconds(5));
+
+        engine.placeBet(playerId, 10);
+        assertThatThrownBy(() -> engine.placeBet(playerId, 10))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Очередь ставок переполнена");
+        engine.shutdown();
+
+        Bet bet = betRepository.findAll().iterator().next();
+        assertThat(betRepository.count()).isEqualTo(1);
+        assertThat(playerRepository.findById(playerId).orElseThrow().getBalance())
+                .isEqualTo(INITIAL_BALANCE + (bet.isWin() ? bet.getAmount() : -bet.getAmount()));
+    }
+
+    @Test
+    void winOfRejectedBetShouldNotBeSpendable() throws Exception {
+        Player player = new Player();
+        player.setName("Small Stakes");
+        player.setBalance(20);
+        Long smallPlayerId = playerRepository.save(player).getId();
+        Iterator<Boolean> outcomes = List.of(false, true, false).iterator();
+        InMemoryBetEngine engine = new InMemoryBetEngine(playerRepository, betRepository, entityManager,
+                transactionManager, outcomes::next, new SimpleMeterRegistry(),
+                1, 10, Duration.ofMinutes(1), Duration.ofMillis(500), Duration.ofSeconds(5));
+        engine.placeBet(smallPlayerId, 10); // Проигрыш занимает единственное место в очереди: баланс 10
+
+        // Выигрышная ставка ждёт места в очереди; её выигрыш ещё не зачислен
+        CompletableFuture<BetEngine.BetOutcome> winning = new CompletableFuture<>();
+        Thread bettor = new Thread(() -> {
+            try {
+                winning.complete(engine.placeBet(smallPlayerId, 10));
+            } catch (RuntimeException exception) {
+                winning.completeExceptionally(exception);
+            }
+        });
+        bettor.start();
+        while (bettor.getState() != Thread.State.TIMED_WAITING) {
+            Thread.onSpinWait();
+        }
+
+        assertThat(engine.placeBet(smallPlayerId, 20)).isEqualTo(BetEngine.BetOutcome.INSUFFICIENT_FUNDS);
+        assertThatThrownBy(winning::join).hasRootCauseMessage("Очередь ставок переполнена");
+        engine.shutdown();
+
+        // Отклонённая ставка вернула только списанное
+        assertThat(playerRepository.findById(smallPlayerId).orElseThrow().getBalance()).isEqualTo(10);
+    }
+
+    @Test
+    void rejectedRowShouldBeSkippedWithoutBlockingOthers() throws Exception {
+        Player player = new Player();
+        player.setName("Leaving Soon");
+        player.setBalance(100);
+        Long leavingPlayerId = playerRepository.save(player).getId();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        InMemoryBetEngine engine = new InMemoryBetEngine(playerRepository, betRepository, entityManager,
+                transactionManager, new SeededOutcomeGenerator(42), meterRegistry,
+                100, 10, Duration.ofMinutes(1), Duration.ofSeconds(1), Duration.ofSeconds(5));
+        engine.placeBet(playerId, 10);
+        engine.placeBet(leavingPlayerId, 10);
+        engine.placeBet(playerId, 10);
+        // Игрок удалён до записи его ставки: её вставка нарушит внешний ключ
+        playerRepository.deleteById(leavingPlayerId);
+
+        engine.shutdown();
+
+        assertThat(betRepository.count()).isEqualTo(2);
+        assertThat(meterRegistry.get("casino.engine.rejected").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shutdownShouldGiveUpWhenDatabaseIsDown() throws Exception {
+        BetRepository failingBetRepository = mock(BetRepository.class);
+        when(failingBetRepository.saveAll(any())).thenThrow(new DataAccessResourceFailureException("Database is down"));
+        InMemoryBetEngine engine = new InMemoryBetEngine(playerRepository, failingBetRepository, entityManager,
+                transactionManager, new SeededOutcomeGenerator(42), new SimpleMeterRegistry(),
+                100, 10, Duration.ofMillis(20), Duration.ofMillis(100), Duration.ofMillis(200));
+        engine.placeBet(playerId, 10);
+
+        long start = System.nanoTime();
+        engine.shutdown();
+
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(2));
+        assertThatThrownBy(() -> engine.placeBet(playerId, 10)).isInstanceOf(IllegalStateException.class);
+    }
+}
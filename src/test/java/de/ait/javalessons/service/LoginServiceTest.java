@@ -0,0 +1,70 @@
+package de.ait.javalessons.service;
+
+import de.ait.javalessons.model.AuthRequest;
+import de.ait.javalessons.utils.JwtUtils;
+import de.ait.javalessons.utils.SecurityEventRecorder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.User;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LoginServiceTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private LoginService loginService;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        loginService.shutdown();
+    }
+
+    @Test
+    void loginShouldBeRejectedWhenQueueIsFull() throws Exception {
+        AuthenticationManager authenticationManager = mock(AuthenticationManager.class);
+        when(authenticationManager.authenticate(any())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS); // Имитируем долгую проверку BCrypt
+            User user = new User("admin", "", List.of());
+            return new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities());
+        });
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        JwtUtils jwtUtils = new JwtUtils(meterRegistry,
+                new SecurityEventRecorder(meterRegistry, 10, Duration.ofMinutes(1)));
+        loginService = new LoginService(authenticationManager, jwtUtils, meterRegistry, 1, 1);
+
+        CompletableFuture<String> running = loginService.login(request());
+        CompletableFuture<String> queued = loginService.login(request());
+
+        // Один логин выполняется, один в очереди — третий отклоняется сразу
+        assertThatThrownBy(() -> loginService.login(request()))
+                .isInstanceOf(RejectedExecutionException.class);
+
+        release.countDown();
+        assertThat(running.get(5, TimeUnit.SECONDS)).startsWith("ey");
+        assertThat(queued.get(5, TimeUnit.SECONDS)).startsWith("ey");
+        assertThat(meterRegistry.get("auth.login").timer().count()).isEqualTo(2);
+    }
+
+    private static AuthRequest request() {
+        AuthRequest request = new AuthRequest();
+        request.setUsername("admin");
+        request.setPassword("admin");
+        return request;
+    }
+}
@@ -0,0 +1,35 @@
+package de.ait.javalessons.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SeededOutcomeGeneratorTest {
+
+    private static final int OUTCOMES = 10_000;
+
+    @Test
+    void sameSeedShouldReplaySameOutcomes() {
+        SeededOutcomeGenerator first = new SeededOutcomeGenerator(42);
+        SeededOutcomeGenerator second = new SeededOutcomeGenerator(42);
+
+        for (int i = 0; i < OUTCOMES; i++) {
+            assertThat(second.nextWin()).isEqualTo(first.nextWin());
+        }
+    }
+
+    @Test
+    void outcomesShouldBeBalanced() {
+        SeededOutcomeGenerator generator = new SeededOutcomeGenerator(7);
+
+        int wins = 0;
+        for (int i = 0; i < OUTCOMES; i++) {
+            if (generator.nextWin()) {
+                wins++;
+            }
+        }
+
+        // Ожидаем около половины выигрышей (±3%)
+        assertThat(wins).isBetween(OUTCOMES * 47 / 100, OUTCOMES * 53 / 100);
+    }
+}
@@ -0,0 +1,170 @@
+package de.ait.javalessons.service;
+
+import de.ait.javalessons.model.AppUser;
+import de.ait.javalessons.model.BankAccount;
+import de.ait.javalessons.model.Player;
+import de.ait.javalessons.repository.AppUserRepository;
+import de.ait.javalessons.repository.BankAccountRepository;
+import de.ait.javalessons.repository.BetRepository;
+import de.ait.javalessons.repository.PlayerRepository;
+import de.ait.javalessons.serice.CachingUserDetailService;
+import de.ait.javalessons.serice.CustomUserDetailService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Проверка закрепления (pinning) виртуальных потоков: блокирующие пути приложения
+ * (JPA/H2, кэш пользователей, движки ставок) выполняются на виртуальных потоках под JFR,
+ * и ни одно событие jdk.VirtualThreadPinned не должно появиться.
+ */
+@Slf4j
+@DataJpaTest(properties = "spring.jpa.show-sql=false")
+@Import({BankAccountService.class, BetPlacementService.class, ThreadLocalOutcomeGenerator.class,
+        CustomUserDetailService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // Каждая задача работает в своей транзакции
+class VirtualThreadPinningTest {
+
+    private static final int TASKS = 200;
+
+    @Autowired
+    private BankAccountService bankAccountService;
+
+    @Autowired
+    private BetPlacementService betPlacementService;
+
+    @Autowired
+    private CustomUserDetailService customUserDetailService;
+
+    @Autowired
+    private BankAccountRepository bankAccountRepository;
+
+    @Autowired
+    private PlayerRepository playerRepository;
+
+    @Autowired
+    private BetRepository betRepository;
+
+    @Autowired
+    private AppUserRepository appUserRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Long playerId;
+
+    @BeforeEach
+    void setUp() {
+        betRepository.deleteAll();
+        playerRepository.deleteAll();
+        bankAccountRepository.deleteAll();
+        appUserRepository.deleteAll();
+        bankAccountRepository.save(new BankAccount("hot", "Test Owner", new BigDecimal("1000.00"), null));
+        appUserRepository.save(new AppUser(null, "user", "secret", "USER"));
+        Player player = new Player();
+        player.setName("Player");
+        player.setBalance(1_000_000);
+        playerId = playerRepository.save(player).getId();
+    }
+
+    @Test
+    void blockingPathsShouldNotPinVirtualThreads() throws Exception {
+        CachingUserDetailService cachingUserDetailService = new CachingUserDetailService(
+                customUserDetailService, new SimpleMeterRegistry(), 100, Duration.ofMinutes(5));
+        InMemoryBetEngine inMemoryBetEngine = new InMemoryBetEngine(playerRepository, betRepository, entityManager,
+                transactionManager, new ThreadLocalOutcomeGenerator(), new SimpleMeterRegistry(),
+                10_000, 50, Duration.ofMillis(20), Duration.ofSeconds(1), Duration.ofSeconds(5));
+
+        List<RecordedEvent> pinned = recordPinned(TASKS, task -> {
+            // Все задачи бьют в один счёт и одного игрока — ожидание блокировок строк в H2
+            bankAccountService.deposit("hot", new BigDecimal("1.00"));
+            betPlacementService.placeBet(playerId, 1);
+            inMemoryBetEngine.placeBet(playerId, 1);
+            if (task % 10 == 0) {
+                cachingUserDetailService.evict("user");
+            }
+            cachingUserDetailService.loadUserByUsername("user");
+        });
+        inMemoryBetEngine.shutdown();
+
+        pinned.forEach(event -> log.warn("Pinned virtual thread for {}:\n{}", event.getDuration(),
+                event.getStackTrace().getFrames().stream()
+                        .map(RecordedFrame::getMethod)
+                        .map(method -> method.getType().getName() + "." + method.getName())
+                        .collect(Collectors.joining("\n\tat ", "\tat ", ""))));
+        assertThat(pinned).isEmpty();
+    }
+
+    // Контроль самой проверки: без него пустой список событий мог бы означать, что JFR их просто не записал
+    @Test
+    void blockingInsideSynchronizedShouldBeReportedAsPinned() throws Exception {
+        // С JDK 24 (JEP 491) synchronized больше не закрепляет виртуальный поток
+        assumeTrue(Runtime.version().feature() < 24, "synchronized does not pin on JDK 24+");
+        Object monitor = new Object();
+
+        List<RecordedEvent> pinned = recordPinned(1, task -> {
+            synchronized (monitor) {
+                Thread.sleep(20);
+            }
+        });
+
+        assertThat(pinned).isNotEmpty();
+    }
+
+    private interface Task {
+        void run(int task) throws Exception;
+    }
+
+    // Выполняет задачи на виртуальных потоках и возвращает все события jdk.VirtualThreadPinned за это время
+    private static List<RecordedEvent> recordPinned(int tasks, Task body) throws Exception {
+        List<RecordedEvent> pinned = new CopyOnWriteArrayList<>();
+        try (RecordingStream recording = new RecordingStream()) {
+            recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+            recording.onEvent("jdk.VirtualThreadPinned", pinned::add);
+            recording.startAsync();
+
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int task = 0; task < tasks; task++) {
+                    int number = task;
+                    futures.add(executor.submit(() -> {
+                        body.run(number);
+                        return null;
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            }
+            recording.stop(); // Дожидается доставки всех записанных событий
+        }
+        return pinned;
+    }
+}
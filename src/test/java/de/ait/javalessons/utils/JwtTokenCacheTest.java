@@ -0,0 +1,59 @@
+package de.ait.javalessons.utils;
+
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class JwtTokenCacheTest {
+
+    private JwtUtils jwtUtils;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private JwtTokenCache jwtTokenCache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        jwtUtils = spy(new JwtUtils(meterRegistry,
+                new SecurityEventRecorder(meterRegistry, 10, Duration.ofMinutes(1))));
+        jwtTokenCache = new JwtTokenCache(jwtUtils, meterRegistry, 100);
+    }
+
+    @Test
+    void repeatedTokenShouldBeParsedOnlyOnce() {
+        String token = jwtUtils.generateToken("admin");
+
+        Optional<Claims> first = jwtTokenCache.getClaims(token);
+        Optional<Claims> second = jwtTokenCache.getClaims(token);
+
+        assertThat(first).isPresent();
+        assertThat(second).isPresent();
+        assertThat(second.get().getSubject()).isEqualTo("admin");
+        // Подпись проверяется только при первом обращении
+        verify(jwtUtils, times(1)).parseClaims(token);
+
+        double hits = meterRegistry.get("cache.gets").tag("cache", "jwt.tokens").tag("result", "hit")
+                .functionCounter().count();
+        assertThat(hits).isEqualTo(1.0);
+    }
+
+    @Test
+    void invalidTokenShouldNotBeCached() {
+        String token = jwtUtils.generateToken("admin") + "broken";
+
+        assertThat(jwtTokenCache.getClaims(token)).isEmpty();
+        assertThat(jwtTokenCache.getClaims(token)).isEmpty();
+
+        verify(jwtUtils, times(2)).parseClaims(token);
+    }
+}
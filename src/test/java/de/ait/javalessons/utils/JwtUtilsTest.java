@@ -0,0 +1,46 @@
+package de.ait.javalessons.utils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtUtilsTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private JwtUtils jwtUtils;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        jwtUtils = new JwtUtils(meterRegistry,
+                new SecurityEventRecorder(meterRegistry, 10, Duration.ofMinutes(1)));
+    }
+
+    @Test
+    void generateAndValidateShouldBeTimed() {
+        String token = jwtUtils.generateToken("admin");
+
+        assertThat(jwtUtils.validateToken(token)).isTrue();
+        assertThat(meterRegistry.get("jwt.generate").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("jwt.validate").tag("result", "valid").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void invalidTokenShouldBeCountedByReason() {
+        String token = jwtUtils.generateToken("admin");
+        String tampered = token.substring(0, token.length() - 2) + "xx";
+
+        assertThat(jwtUtils.validateToken(tampered)).isFalse();
+        assertThat(jwtUtils.validateToken("not-a-token")).isFalse();
+        assertThat(meterRegistry.get("jwt.validate").tag("result", "invalid").timer().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("jwt.validation.failures").tag("reason", "bad_signature")
+                .counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("jwt.validation.failures").tag("reason", "malformed")
+                .counter().count()).isEqualTo(1);
+    }
+}
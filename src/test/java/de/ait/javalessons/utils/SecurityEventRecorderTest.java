@@ -0,0 +1,70 @@
+package de.ait.javalessons.utils;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.security.SignatureException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SecurityEventRecorderTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final Logger logger = (Logger) LoggerFactory.getLogger(SecurityEventRecorder.class);
+
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+    @BeforeEach
+    void setUp() {
+        appender.start();
+        logger.addAppender(appender);
+    }
+
+    @AfterEach
+    void tearDown() {
+        logger.detachAppender(appender);
+    }
+
+    @Test
+    void everyEventShouldBeCountedButOnlyLimitLogged() {
+        SecurityEventRecorder recorder = new SecurityEventRecorder(meterRegistry, 2, Duration.ofHours(1));
+
+        for (int i = 0; i < 100; i++) {
+            recorder.invalidToken(new ExpiredJwtException(null, null, "JWT expired"));
+        }
+        recorder.invalidToken(new SignatureException("JWT signature does not match"));
+
+        assertThat(appender.list).hasSize(2);
+        assertThat(appender.list).allSatisfy(event -> assertThat(event.getThrowableProxy()).isNull());
+        assertThat(meterRegistry.get("jwt.validation.failures").tag("reason", "expired").counter().count())
+                .isEqualTo(100);
+        assertThat(meterRegistry.get("jwt.validation.failures").tag("reason", "bad_signature").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void nextIntervalShouldReportSuppressedEvents() throws InterruptedException {
+        SecurityEventRecorder recorder = new SecurityEventRecorder(meterRegistry, 1, Duration.ofMillis(100));
+
+        recorder.invalidToken(new MalformedJwtException("Malformed"));
+        recorder.invalidToken(new MalformedJwtException("Malformed"));
+        recorder.invalidToken(new ExpiredJwtException(null, null, "JWT expired"));
+        Thread.sleep(150);
+        recorder.invalidToken(new MalformedJwtException("Malformed"));
+
+        assertThat(appender.list).extracting(ILoggingEvent::getFormattedMessage).containsExactly(
+                "Invalid JWT token (MALFORMED): Malformed",
+                "2 more invalid JWT tokens were not logged in the previous interval: {EXPIRED=1, MALFORMED=1}",
+                "Invalid JWT token (MALFORMED): Malformed");
+    }
+}
@@ -0,0 +1,81 @@
+package de.ait.javalessons.utils;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.ait.javalessons.model.Book;
+import de.ait.javalessons.repository.BookRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = "spring.jpa.show-sql=false")
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // Писатель открывает собственную транзакцию
+class StreamingJsonWriterTest {
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private StreamingJsonWriter streamingJsonWriter;
+
+    @BeforeEach
+    void setUp() {
+        bookRepository.deleteAll();
+        bookRepository.saveAll(List.of(
+                new Book("2", "1984", "George Orwell", 1949),
+                new Book("1", "Clean Code", "Robert C. Martin", 2008),
+                new Book("3", "Effective Java", "Joshua Bloch", 2018)));
+        streamingJsonWriter = new StreamingJsonWriter(objectMapper, entityManager, transactionManager);
+    }
+
+    @Test
+    void streamShouldWriteJsonArrayOrderedById() throws Exception {
+        String body = write(streamingJsonWriter.stream(null, bookRepository::streamAll));
+
+        List<Book> books = objectMapper.readValue(body, new TypeReference<>() {
+        });
+        assertThat(books).extracting(Book::getId).containsExactly("1", "2", "3");
+    }
+
+    @Test
+    void streamShouldWriteNdjsonWhenRequested() throws Exception {
+        String body = write(streamingJsonWriter.stream("application/x-ndjson", bookRepository::streamAll));
+
+        String[] lines = body.split("\n");
+        assertThat(lines).hasSize(3);
+        assertThat(objectMapper.readValue(lines[0], Book.class).getTitle()).isEqualTo("Clean Code");
+    }
+
+    @Test
+    void pageShouldSeekAfterLastId() {
+        List<Book> page = bookRepository.findByIdGreaterThanOrderByIdAsc("1", StreamingJsonWriter.pageLimit(1));
+
+        assertThat(page).extracting(Book::getId).containsExactly("2");
+    }
+
+    private static String write(ResponseEntity<StreamingResponseBody> response) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        response.getBody().writeTo(outputStream);
+        return outputStream.toString(StandardCharsets.UTF_8);
+    }
+}
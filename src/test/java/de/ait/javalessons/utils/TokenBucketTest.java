@@ -0,0 +1,61 @@
+package de.ait.javalessons.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketTest {
+
+    @Test
+    void shouldAllowCapacityThenReportWait() {
+        TokenBucket bucket = new TokenBucket(1, 3);
+
+        assertThat(bucket.tryAcquire()).isZero();
+        assertThat(bucket.tryAcquire()).isZero();
+        assertThat(bucket.tryAcquire()).isZero();
+        assertThat(bucket.tryAcquire()).isPositive().isLessThanOrEqualTo(TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    void shouldRefillOverTime() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(100, 1);
+
+        assertThat(bucket.tryAcquire()).isZero();
+        assertThat(bucket.tryAcquire()).isPositive();
+        Thread.sleep(20);
+        assertThat(bucket.tryAcquire()).isZero();
+    }
+
+    @Test
+    void concurrentAcquiresShouldNotExceedCapacity() throws Exception {
+        // Пополнение практически нулевое: за время теста токенов не добавится
+        TokenBucket bucket = new TokenBucket(0.001, 1000);
+        AtomicInteger acquired = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < 8; thread++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 500; i++) {
+                    if (bucket.tryAcquire() == 0) {
+                        acquired.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertThat(acquired.get()).isEqualTo(1000);
+    }
+}